@@ -0,0 +1,73 @@
+package com.mageddo.commons.caching;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per read cost under many concurrent readers, run with {@code ./gradlew jmh}. The readers cycle
+ * over as many keys as the capacity, all of them cached, so every read is a hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(16)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LruTTLCacheBenchmark {
+
+  /**
+   * Powers of two, so the readers can mask their index.
+   */
+  @Param({"1024", "16384"})
+  int capacity;
+
+  LruTTLCache cache;
+  String[] keys;
+
+  @Setup
+  public void setup() {
+    this.cache = new LruTTLCache(this.capacity, Duration.ofHours(1));
+    this.keys = new String[this.capacity];
+    for (int i = 0; i < this.capacity; i++) {
+      this.keys[i] = String.valueOf(i);
+      this.cache.computeIfAbsent(this.keys[i], k -> k);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Reader {
+
+    int index = ThreadLocalRandom
+        .current()
+        .nextInt();
+
+    int next(int mask) {
+      return this.index++ & mask;
+    }
+  }
+
+  @Benchmark
+  public Object get(Reader reader) {
+    return this.cache.get(this.keys[reader.next(this.keys.length - 1)]);
+  }
+
+  @Benchmark
+  public boolean containsKey(Reader reader) {
+    return this.cache.containsKey(this.keys[reader.next(this.keys.length - 1)]);
+  }
+}
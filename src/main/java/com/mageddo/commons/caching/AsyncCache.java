@@ -0,0 +1,92 @@
+package com.mageddo.commons.caching;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+
+import com.mageddo.commons.concurrent.ThreadPool;
+
+/**
+ * Caches the futures of asynchronous loaders on a {@link LruTTLCache}, the future is stored as
+ * soon as the load starts, so concurrent callers for the same key share it and no thread is
+ * blocked waiting for a miss. Futures completed exceptionally are removed, so the next call
+ * loads again, the others follow the cache TTL and capacity, the TTL counts from the moment the
+ * load started.
+ */
+public class AsyncCache {
+
+  private final LruTTLCache cache;
+  private final Executor executor;
+
+  public AsyncCache(LruTTLCache cache) {
+    this(cache, ThreadPool.main());
+  }
+
+  /**
+   * @param executor passed to the loaders to run the load on.
+   */
+  public AsyncCache(LruTTLCache cache, Executor executor) {
+    this.cache = cache;
+    this.executor = executor;
+  }
+
+  public <T> CompletableFuture<T> getAsync(
+      String key,
+      BiFunction<? super String, ? super Executor, ? extends CompletableFuture<T>> loader
+  ) {
+    final boolean[] loaded = new boolean[1];
+    final CompletableFuture<T> future = this.cache.computeIfAbsent(key, k -> {
+      loaded[0] = true;
+      return this.load(k, loader);
+    });
+    if (loaded[0]) {
+      future.whenComplete((v, e) -> {
+        if (e != null) {
+          this.cache.remove(key, future);
+        }
+      });
+    }
+    return future;
+  }
+
+  /**
+   * @return the cached future, which may still be running, or null.
+   */
+  public <T> CompletableFuture<T> getIfPresent(String key) {
+    return this.cache.get(key);
+  }
+
+  public void remove(String key) {
+    this.cache.remove(key);
+  }
+
+  public void clear() {
+    this.cache.clear();
+  }
+
+  public LruTTLCache getCache() {
+    return cache;
+  }
+
+  <T> CompletableFuture<T> load(
+      String key,
+      BiFunction<? super String, ? super Executor, ? extends CompletableFuture<T>> loader
+  ) {
+    final CompletableFuture<T> future;
+    try {
+      future = loader.apply(key, this.executor);
+    } catch (Throwable e) {
+      return failed(e);
+    }
+    if (future == null) {
+      return failed(new NullPointerException("loader returned a null future for key: " + key));
+    }
+    return future;
+  }
+
+  static <T> CompletableFuture<T> failed(Throwable e) {
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(e);
+    return future;
+  }
+}
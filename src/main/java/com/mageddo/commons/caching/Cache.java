@@ -1,7 +1,16 @@
 package com.mageddo.commons.caching;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
+/**
+ * Read through cache of string keys, see {@link MutableCache} for the ones which can also be
+ * written and invalidated directly.
+ */
 public interface Cache {
 
   boolean containsKey(String key);
@@ -10,11 +19,52 @@ public interface Cache {
 
   <T> T get(String k, T def);
 
+  /**
+   * @return the cached entries of the keys, in the keys order, absent keys are left out.
+   */
+  default <T> Map<String, T> getAll(Collection<String> keys) {
+    final Map<String, T> found = new LinkedHashMap<>();
+    for (final String key : keys) {
+      if (this.containsKey(key)) {
+        found.put(key, this.get(key));
+      }
+    }
+    return found;
+  }
+
   /**
    * This operation must be used with lock in the implemented method.
    */
   <T> T computeIfAbsent(String key, Function<? super String, ? extends T> mappingFunction);
 
+  /**
+   * Same as {@link #computeIfAbsent(String, Function)} for many keys, the absent ones are
+   * passed together to a single mapping function call, keys left out of its result aren't
+   * cached nor returned. By default the loaded values are cached one by one through
+   * {@link #computeIfAbsent(String, Function)}, so a value cached meanwhile is kept.
+   */
+  default <T> Map<String, T> computeAllIfAbsent(
+      Collection<String> keys,
+      Function<? super Set<String>, ? extends Map<String, ? extends T>> mappingFunction
+  ) {
+    final Map<String, T> found = this.getAll(keys);
+    final Set<String> missing = new LinkedHashSet<>(keys);
+    missing.removeAll(found.keySet());
+    if (missing.isEmpty()) {
+      return found;
+    }
+    final Map<String, ? extends T> loaded = mappingFunction.apply(missing);
+    final Map<String, T> result = new LinkedHashMap<>();
+    for (final String key : keys) {
+      if (found.containsKey(key)) {
+        result.put(key, found.get(key));
+      } else if (loaded != null && loaded.containsKey(key)) {
+        result.put(key, this.computeIfAbsent(key, k -> loaded.get(k)));
+      }
+    }
+    return result;
+  }
+
   void clear();
 
   boolean isEmpty();
@@ -0,0 +1,77 @@
+package com.mageddo.commons.caching;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Exposes a {@link TypedCache} of string keys as a {@link Cache}, the values are cast to
+ * whatever the caller expects.
+ */
+public class CacheAdapter implements MutableCache {
+
+  private final TypedCache<String, Object> cache;
+
+  public CacheAdapter(TypedCache<String, ?> cache) {
+    this.cache = (TypedCache<String, Object>) cache;
+  }
+
+  @Override
+  public boolean containsKey(String key) {
+    return this.cache.containsKey(key);
+  }
+
+  @Override
+  public <T> T get(String k) {
+    return (T) this.cache.get(k);
+  }
+
+  @Override
+  public <T> T get(String k, T def) {
+    return (T) this.cache.get(k, def);
+  }
+
+  @Override
+  public <T> Map<String, T> getAll(Collection<String> keys) {
+    return (Map<String, T>) this.cache.getAll(keys);
+  }
+
+  @Override
+  public void put(String key, Object value) {
+    this.cache.put(key, value);
+  }
+
+  @Override
+  public void putAll(Map<String, ?> entries) {
+    this.cache.putAll(entries);
+  }
+
+  @Override
+  public <T> T computeIfAbsent(String key, Function<? super String, ? extends T> mappingFunction) {
+    return (T) this.cache.computeIfAbsent(key, mappingFunction);
+  }
+
+  @Override
+  public <T> Map<String, T> computeAllIfAbsent(
+      Collection<String> keys,
+      Function<? super Set<String>, ? extends Map<String, ? extends T>> mappingFunction
+  ) {
+    return (Map<String, T>) this.cache.computeAllIfAbsent(keys, mappingFunction);
+  }
+
+  @Override
+  public void remove(String key) {
+    this.cache.remove(key);
+  }
+
+  @Override
+  public void clear() {
+    this.cache.clear();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.cache.isEmpty();
+  }
+}
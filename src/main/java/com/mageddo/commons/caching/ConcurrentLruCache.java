@@ -0,0 +1,269 @@
+package com.mageddo.commons.caching;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import com.mageddo.commons.collections.Maps;
+import com.mageddo.commons.concurrent.SingleFlight;
+
+/**
+ * Thread safe {@link LruCache}, keys are hashed to independent segments, each one with its own
+ * lock and LRU list, the capacity is split across them. Operations only lock the key segment
+ * and computations don't hold it, so unrelated keys never wait for each other's computation. The
+ * LRU order is kept per segment, so the evicted entry is the least recently used of its
+ * segment, not necessarily of the whole cache.
+ */
+public class ConcurrentLruCache implements MutableCache {
+
+  public static final int DEFAULT_SEGMENTS = 16;
+
+  static final Object ABSENT = new Object();
+
+  private final Integer capacity;
+  private final Segment[] segments;
+  private final SingleFlight<String, Object> inFlight;
+
+  public ConcurrentLruCache() {
+    this(null);
+  }
+
+  public ConcurrentLruCache(Integer capacity) {
+    this(capacity, DEFAULT_SEGMENTS);
+  }
+
+  public ConcurrentLruCache(Integer capacity, int segments) {
+    if (segments < 1) {
+      throw new IllegalArgumentException("segments must be greater than zero: " + segments);
+    }
+    this.capacity = capacity;
+    this.inFlight = new SingleFlight<>();
+    final int size = capacity == null ? segments : Math.max(1, Math.min(segments, capacity));
+    this.segments = new Segment[size];
+    for (int i = 0; i < size; i++) {
+      this.segments[i] = new Segment(segmentCapacity(capacity, size, i));
+    }
+  }
+
+  @Override
+  public boolean containsKey(String key) {
+    final Segment segment = this.segmentFor(key);
+    segment.lock.lock();
+    try {
+      return segment.store.containsKey(key);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public <T> T get(String k) {
+    return this.get(k, null);
+  }
+
+  @Override
+  public <T> T get(String k, T def) {
+    final Segment segment = this.segmentFor(k);
+    segment.lock.lock();
+    try {
+      if (segment.store.containsKey(k)) {
+        return (T) segment.store.get(k);
+      }
+      return def;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public <T> Map<String, T> getAll(Collection<String> keys) {
+    final Map<String, T> found = new LinkedHashMap<>();
+    for (final String key : keys) {
+      final Object v = this.segmentFor(key).getOrAbsent(key);
+      if (v != ABSENT) {
+        found.put(key, (T) v);
+      }
+    }
+    return found;
+  }
+
+  @Override
+  public void put(String key, Object value) {
+    final Segment segment = this.segmentFor(key);
+    segment.lock.lock();
+    try {
+      segment.store.put(key, value);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public void putAll(Map<String, ?> entries) {
+    entries.forEach(this::put);
+  }
+
+  /**
+   * The computation runs outside the segment lock, concurrent callers for the same key wait for
+   * a single computation.
+   */
+  @Override
+  public <T> T computeIfAbsent(String key, Function<? super String, ? extends T> mappingFunction) {
+    final Segment segment = this.segmentFor(key);
+    final Object cached = segment.getOrAbsent(key);
+    if (cached != ABSENT) {
+      return (T) cached;
+    }
+    return (T) this.inFlight.execute(key, () -> {
+      final Object current = segment.getOrAbsent(key);
+      if (current != ABSENT) {
+        return current;
+      }
+      final T v = mappingFunction.apply(key);
+      segment.lock.lock();
+      try {
+        segment.store.put(key, v);
+      } finally {
+        segment.lock.unlock();
+      }
+      return v;
+    });
+  }
+
+  /**
+   * The missing keys are loaded in a single call, outside the segments locks, concurrent calls
+   * missing the same keys may load them more than once.
+   */
+  @Override
+  public <T> Map<String, T> computeAllIfAbsent(
+      Collection<String> keys,
+      Function<? super Set<String>, ? extends Map<String, ? extends T>> mappingFunction
+  ) {
+    final Map<String, T> found = this.getAll(keys);
+    final Set<String> missing = new LinkedHashSet<>(keys);
+    missing.removeAll(found.keySet());
+    if (missing.isEmpty()) {
+      return found;
+    }
+    final Map<String, ? extends T> loaded = mappingFunction.apply(missing);
+    final Map<String, T> result = new LinkedHashMap<>();
+    for (final String key : keys) {
+      if (found.containsKey(key)) {
+        result.put(key, found.get(key));
+      } else if (loaded != null && loaded.containsKey(key)) {
+        final T v = loaded.get(key);
+        this.put(key, v);
+        result.put(key, v);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void remove(String key) {
+    final Segment segment = this.segmentFor(key);
+    segment.lock.lock();
+    try {
+      segment.store.remove(key);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (final Segment segment : this.segments) {
+      segment.lock.lock();
+      try {
+        segment.store.clear();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.getSize() == 0;
+  }
+
+  public Integer getCapacity() {
+    return capacity;
+  }
+
+  public int getSize() {
+    int size = 0;
+    for (final Segment segment : this.segments) {
+      segment.lock.lock();
+      try {
+        size += segment.store.size();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * A copy of the current entries, the segments are visited one by one, so it's not an atomic
+   * snapshot of the whole cache.
+   */
+  public Map<String, Object> asMap() {
+    final Map<String, Object> copy = new HashMap<>();
+    for (final Segment segment : this.segments) {
+      segment.lock.lock();
+      try {
+        copy.putAll(segment.store);
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+    return Collections.unmodifiableMap(copy);
+  }
+
+  Segment segmentFor(String key) {
+    final int h = key.hashCode();
+    return this.segments[((h ^ (h >>> 16)) & Integer.MAX_VALUE) % this.segments.length];
+  }
+
+  /**
+   * Splits the capacity as evenly as possible, the first segments get the remainder.
+   */
+  static Integer segmentCapacity(Integer capacity, int segments, int index) {
+    if (capacity == null) {
+      return null;
+    }
+    return capacity / segments + (index < capacity % segments ? 1 : 0);
+  }
+
+  static class Segment {
+
+    final ReentrantLock lock = new ReentrantLock();
+    final Map<String, Object> store;
+
+    Segment(Integer capacity) {
+      this.store = Maps.lruMap(capacity);
+    }
+
+    /**
+     * @return {@link #ABSENT} when the key isn't cached, so a cached null can be told apart.
+     */
+    Object getOrAbsent(String key) {
+      this.lock.lock();
+      try {
+        if (this.store.containsKey(key)) {
+          return this.store.get(key);
+        }
+        return ABSENT;
+      } finally {
+        this.lock.unlock();
+      }
+    }
+  }
+}
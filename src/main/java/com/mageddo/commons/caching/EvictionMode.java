@@ -0,0 +1,23 @@
+package com.mageddo.commons.caching;
+
+/**
+ * How a capacity bounded cache chooses the entry to evict.
+ */
+public enum EvictionMode {
+
+  /**
+   * Least recently used.
+   */
+  LRU,
+
+  /**
+   * W-TinyLFU, new entries go to a small LRU window, when leaving it they are only admitted to
+   * the main region if they were used more often than the main region victim, according to a
+   * count-min sketch with periodic aging. The main region is a segmented LRU, so entries used
+   * again are protected from scans and one-hit wonders.
+   *
+   * @see <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache Admission
+   * Policy</a>
+   */
+  TINY_LFU
+}
@@ -0,0 +1,58 @@
+package com.mageddo.commons.caching;
+
+import java.time.Duration;
+
+/**
+ * Chooses how long each entry lives, the returned durations count from the moment the hook was
+ * called, they are called on the thread which created, updated or read the entry, so they should
+ * be cheap. Huge durations never expire.
+ */
+public interface Expiry<K, V> {
+
+  /**
+   * When the entry is put or loaded for a key which wasn't cached.
+   */
+  Duration expireAfterCreate(K key, V value);
+
+  /**
+   * When a cached key gets a new value, expires as a new entry by default.
+   *
+   * @param remaining how long the replaced entry still had to live.
+   */
+  default Duration expireAfterUpdate(K key, V value, Duration remaining) {
+    return this.expireAfterCreate(key, value);
+  }
+
+  /**
+   * When the entry is read, keeps the current expiration by default.
+   *
+   * @param remaining how long the entry still has to live.
+   */
+  default Duration expireAfterRead(K key, V value, Duration remaining) {
+    return remaining;
+  }
+
+  /**
+   * Entries live for the TTL since they were last written.
+   */
+  static <K, V> Expiry<K, V> afterWrite(Duration ttl) {
+    return (key, value) -> ttl;
+  }
+
+  /**
+   * Sliding expiration, entries live for the TTL since they were last written or read.
+   */
+  static <K, V> Expiry<K, V> afterAccess(Duration ttl) {
+    return new Expiry<K, V>() {
+      @Override
+      public Duration expireAfterCreate(K key, V value) {
+        return ttl;
+      }
+
+      @Override
+      public Duration expireAfterRead(K key, V value, Duration remaining) {
+        return ttl;
+      }
+    };
+  }
+}
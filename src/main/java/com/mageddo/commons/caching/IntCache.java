@@ -0,0 +1,69 @@
+package com.mageddo.commons.caching;
+
+import java.time.Duration;
+import java.util.function.IntFunction;
+
+/**
+ * {@link LongCache} for primitive int keys, they are just widened, so it has the same
+ * allocation free hits and the same eviction and expiration.
+ */
+public class IntCache<V> {
+
+  private final LongCache<V> cache;
+
+  public IntCache(int capacity, Duration ttl) {
+    this(new LongCache<>(capacity, ttl));
+  }
+
+  /**
+   * @param cache where the entries are actually stored, like one built by
+   *              {@link LongCache#builder()}.
+   */
+  public IntCache(LongCache<V> cache) {
+    this.cache = cache;
+  }
+
+  public boolean containsKey(int key) {
+    return this.cache.containsKey(key);
+  }
+
+  public V get(int key) {
+    return this.cache.get(key);
+  }
+
+  public V get(int key, V def) {
+    return this.cache.get(key, def);
+  }
+
+  public void put(int key, V value) {
+    this.cache.put(key, value);
+  }
+
+  public V computeIfAbsent(int key, IntFunction<? extends V> mappingFunction) {
+    return this.cache.computeIfAbsent(key, k -> mappingFunction.apply((int) k));
+  }
+
+  public void remove(int key) {
+    this.cache.remove(key);
+  }
+
+  public void clear() {
+    this.cache.clear();
+  }
+
+  public void cleanUp() {
+    this.cache.cleanUp();
+  }
+
+  public boolean isEmpty() {
+    return this.cache.isEmpty();
+  }
+
+  public int getCapacity() {
+    return this.cache.getCapacity();
+  }
+
+  public int getSize() {
+    return this.cache.getSize();
+  }
+}
@@ -0,0 +1,192 @@
+package com.mageddo.commons.caching;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+
+import com.mageddo.commons.caching.internal.LongTable;
+import com.mageddo.commons.caching.internal.Wrapper;
+import com.mageddo.commons.concurrent.SingleFlight;
+import com.mageddo.commons.lang.Objects;
+
+import lombok.Builder;
+
+/**
+ * {@link LruTTLCache} for primitive long keys, entries are kept on primitive arrays, so hits
+ * don't allocate and there are no node objects per entry. Keys are hashed to independent
+ * segments, each one with its own lock, LRU list and share of the capacity, the evicted entry
+ * is the least recently used of its segment. Null values are cached.
+ *
+ * @see LongTable
+ */
+public class LongCache<V> {
+
+  public static final int DEFAULT_SEGMENTS = 16;
+
+  static final Object ABSENT = new Object();
+
+  private final int capacity;
+  private final Duration ttl;
+  private final Ticker ticker;
+  private final Segment[] segments;
+  private final SingleFlight<Long, Object> inFlight;
+
+  public LongCache(int capacity, Duration ttl) {
+    this(capacity, ttl, null, null);
+  }
+
+  /**
+   * @param segments {@link #DEFAULT_SEGMENTS} by default, never more than the capacity.
+   * @param ticker   time source of the expirations, {@link Ticker#system()} by default.
+   */
+  @Builder
+  private LongCache(int capacity, Duration ttl, Integer segments, Ticker ticker) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be greater than zero: " + capacity);
+    }
+    this.capacity = capacity;
+    this.ttl = ttl;
+    this.ticker = Objects.useItOrDefault(ticker, Ticker::system);
+    final int size = Math.max(1, Math.min(
+        Objects.firstNonNull(segments, DEFAULT_SEGMENTS), capacity
+    ));
+    this.segments = new Segment[size];
+    for (int i = 0; i < size; i++) {
+      this.segments[i] = new Segment(new LongTable(
+          ConcurrentLruCache.segmentCapacity(capacity, size, i)
+      ));
+    }
+    this.inFlight = new SingleFlight<>();
+  }
+
+  public boolean containsKey(long key) {
+    return this.getOrAbsent(key) != ABSENT;
+  }
+
+  public V get(long key) {
+    return this.get(key, null);
+  }
+
+  public V get(long key, V def) {
+    final Object v = this.getOrAbsent(key);
+    return v == ABSENT ? def : (V) v;
+  }
+
+  public void put(long key, V value) {
+    final long now = this.ticker.read();
+    final long expiresAt = this.ttl == null ? Long.MAX_VALUE : Wrapper.plus(now, this.ttl);
+    final Segment segment = this.segmentFor(key);
+    segment.lock.lock();
+    try {
+      segment.table.put(key, value, expiresAt, now);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  /**
+   * The computation runs outside the segment lock, concurrent callers for the same key wait for
+   * a single computation, only misses box the key.
+   */
+  public V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+    final Object cached = this.getOrAbsent(key);
+    if (cached != ABSENT) {
+      return (V) cached;
+    }
+    return (V) this.inFlight.execute(key, () -> {
+      final Object current = this.getOrAbsent(key);
+      if (current != ABSENT) {
+        return current;
+      }
+      final V v = mappingFunction.apply(key);
+      this.put(key, v);
+      return v;
+    });
+  }
+
+  public void remove(long key) {
+    final Segment segment = this.segmentFor(key);
+    segment.lock.lock();
+    try {
+      segment.table.remove(key);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  public void clear() {
+    for (final Segment segment : this.segments) {
+      segment.lock.lock();
+      try {
+        segment.table.clear();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Removes the expired entries, they are also removed when read or when the segment is full.
+   */
+  public void cleanUp() {
+    final long now = this.ticker.read();
+    for (final Segment segment : this.segments) {
+      segment.lock.lock();
+      try {
+        segment.table.removeExpired(now);
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  public boolean isEmpty() {
+    return this.getSize() == 0;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public int getSize() {
+    int size = 0;
+    for (final Segment segment : this.segments) {
+      segment.lock.lock();
+      try {
+        size += segment.table.size();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @return {@link #ABSENT} when the key isn't cached, so a cached null can be told apart.
+   */
+  Object getOrAbsent(long key) {
+    final Segment segment = this.segmentFor(key);
+    segment.lock.lock();
+    try {
+      final int id = segment.table.get(key, this.ticker.read());
+      return id == LongTable.ABSENT ? ABSENT : segment.table.valueOf(id);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  Segment segmentFor(long key) {
+    final int h = Long.hashCode(key);
+    return this.segments[((h ^ (h >>> 16)) & Integer.MAX_VALUE) % this.segments.length];
+  }
+
+  static class Segment {
+
+    final ReentrantLock lock = new ReentrantLock();
+    final LongTable table;
+
+    Segment(LongTable table) {
+      this.table = table;
+    }
+  }
+}
@@ -1,31 +1,61 @@
 package com.mageddo.commons.caching;
 
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
+import com.mageddo.commons.caching.stats.CacheStats;
+import com.mageddo.commons.caching.stats.StatsCounter;
 import com.mageddo.commons.collections.Maps;
 
-public class LruCache implements Cache {
+/**
+ * Reads reorder the underlying access ordered map, so it's not safe to share between threads,
+ * use {@link ConcurrentLruCache} for that.
+ */
+public class LruCache implements MutableCache {
 
   private final Integer capacity;
+  private final Long maximumWeight;
+  private final Weigher<String, Object> weigher;
+  private long weightedSize;
   public final Map<String, Object> store;
+  private StatsCounter stats = StatsCounter.disabled();
 
   public LruCache() {
     this(null);
   }
 
   public LruCache(Integer capacity) {
-    this.capacity = capacity;
-    this.store = Maps.lruMap(capacity);
+    this(capacity, Maps.lruMap(capacity));
   }
 
   public LruCache(Integer capacity, Map<String, Object> store) {
     this.capacity = capacity;
+    this.maximumWeight = null;
+    this.weigher = null;
     this.store = store;
   }
 
+  /**
+   * Bounded by the sum of the entries weights instead of their count, the least recently used
+   * entries are evicted while it's greater than the maximum weight. The weights are tracked as
+   * the entries are written and removed through the cache, so changing the store directly
+   * isn't supported on this mode.
+   */
+  public LruCache(long maximumWeight, Weigher<String, Object> weigher) {
+    this.capacity = null;
+    this.maximumWeight = maximumWeight;
+    this.weigher = weigher;
+    this.store = Maps.lruMap(null);
+  }
+
   @Override
   public boolean containsKey(String key) {
     return this.store.containsKey(key);
@@ -33,17 +63,51 @@ public class LruCache implements Cache {
 
   @Override
   public <T> T get(String k) {
-    return (T) this.store.get(k);
+    return this.get(k, null);
   }
 
   @Override
   public <T> T get(String k, T def) {
     if (this.store.containsKey(k)) {
-      return this.get(k);
+      this.stats.recordHits(1);
+      return (T) this.store.get(k);
     }
+    this.stats.recordMisses(1);
     return def;
   }
 
+  @Override
+  public <T> Map<String, T> getAll(Collection<String> keys) {
+    final Map<String, T> found = this.findAll(keys);
+    this.stats.recordHits(found.size());
+    this.stats.recordMisses(keys.size() - found.size());
+    return found;
+  }
+
+  @Override
+  public void put(String key, Object value) {
+    if (this.weigher == null) {
+      final boolean added = this.stats != StatsCounter.disabled() && !this.store.containsKey(key);
+      final int size = this.store.size();
+      this.store.put(key, value);
+      if (added && this.store.size() == size) {
+        this.stats.recordRemoval(RemovalCause.SIZE, 1);
+      }
+      return;
+    }
+    if (this.store.containsKey(key)) {
+      this.weightedSize -= this.weigher.weigh(key, this.store.get(key));
+    }
+    this.store.put(key, value);
+    this.weightedSize += this.weigher.weigh(key, value);
+    this.evictByWeight();
+  }
+
+  @Override
+  public void putAll(Map<String, ?> entries) {
+    entries.forEach(this::put);
+  }
+
   @Override
   public <T> T computeIfAbsent(String key, Function<? super String, ? extends T> mappingFunction) {
     if (this.containsKey(key)) { // pre lock check, to optimize performance
@@ -53,15 +117,63 @@ public class LruCache implements Cache {
       if (this.containsKey(key)) {
         return this.get(key);
       }
-      final T v = mappingFunction.apply(key);
-      this.store.put(key, v);
+      this.stats.recordMisses(1);
+      final T v = this.timed(() -> mappingFunction.apply(key));
+      this.put(key, v);
       return v;
     }
   }
 
+  @Override
+  public <T> Map<String, T> computeAllIfAbsent(
+      Collection<String> keys,
+      Function<? super Set<String>, ? extends Map<String, ? extends T>> mappingFunction
+  ) {
+    final Map<String, T> cached = this.getAll(keys);
+    if (cached
+        .keySet()
+        .containsAll(keys)) { // pre lock check, to optimize performance
+      return cached;
+    }
+    synchronized (this) {
+      final Map<String, T> found = this.findAll(keys);
+      final Set<String> missing = new LinkedHashSet<>(keys);
+      missing.removeAll(found.keySet());
+      if (missing.isEmpty()) {
+        return found;
+      }
+      final Map<String, ? extends T> loaded = this.timed(() -> mappingFunction.apply(missing));
+      final Map<String, T> result = new LinkedHashMap<>();
+      for (final String key : keys) {
+        if (found.containsKey(key)) {
+          result.put(key, found.get(key));
+        } else if (loaded != null && loaded.containsKey(key)) {
+          final T v = loaded.get(key);
+          this.put(key, v);
+          result.put(key, v);
+        }
+      }
+      return result;
+    }
+  }
+
+  @Override
+  public void remove(String key) {
+    if (!this.store.containsKey(key)) {
+      return;
+    }
+    if (this.weigher != null) {
+      this.weightedSize -= this.weigher.weigh(key, this.store.get(key));
+    }
+    this.store.remove(key);
+    this.stats.recordRemoval(RemovalCause.EXPLICIT, 1);
+  }
+
   @Override
   public void clear() {
+    this.stats.recordRemoval(RemovalCause.EXPLICIT, this.store.size());
     this.store.clear();
+    this.weightedSize = 0;
   }
 
   @Override
@@ -69,6 +181,22 @@ public class LruCache implements Cache {
     return this.store.isEmpty();
   }
 
+  /**
+   * Starts counting hits, misses, loads and removals, see {@link #stats()}, call it before
+   * sharing the cache.
+   */
+  public LruCache recordStats() {
+    this.stats = StatsCounter.concurrent();
+    return this;
+  }
+
+  /**
+   * What was counted since {@link #recordStats()} was called, empty if it never was.
+   */
+  public CacheStats stats() {
+    return this.stats.snapshot();
+  }
+
   public Integer getCapacity() {
     return capacity;
   }
@@ -77,6 +205,51 @@ public class LruCache implements Cache {
     return this.store.size();
   }
 
+  public Long getMaximumWeight() {
+    return maximumWeight;
+  }
+
+  public long getWeightedSize() {
+    return weightedSize;
+  }
+
+  /**
+   * Walks from the least recently used entry, so it only visits the evicted ones.
+   */
+  private void evictByWeight() {
+    final Iterator<Map.Entry<String, Object>> it = this.store
+        .entrySet()
+        .iterator();
+    while (this.weightedSize > this.maximumWeight && it.hasNext()) {
+      final Map.Entry<String, Object> entry = it.next();
+      this.weightedSize -= this.weigher.weigh(entry.getKey(), entry.getValue());
+      it.remove();
+      this.stats.recordRemoval(RemovalCause.SIZE, 1);
+    }
+  }
+
+  private <T> Map<String, T> findAll(Collection<String> keys) {
+    final Map<String, T> found = new LinkedHashMap<>();
+    for (final String key : keys) {
+      if (this.store.containsKey(key)) {
+        found.put(key, (T) this.store.get(key));
+      }
+    }
+    return found;
+  }
+
+  private <T> T timed(Supplier<T> loader) {
+    final long start = System.nanoTime();
+    try {
+      final T loaded = loader.get();
+      this.stats.recordLoadSuccess(System.nanoTime() - start);
+      return loaded;
+    } catch (RuntimeException | Error e) {
+      this.stats.recordLoadFailure(System.nanoTime() - start);
+      throw e;
+    }
+  }
+
   public Map<String, Object> asMap(){
     return Collections.unmodifiableMap(this.store);
   }
@@ -1,27 +1,25 @@
 package com.mageddo.commons.caching;
 
+import java.nio.file.Path;
 import java.time.Duration;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import com.mageddo.commons.caching.internal.Wrapper;
-import com.mageddo.commons.caching.internal.WrapperIndex;
-import com.mageddo.commons.lang.Objects;
+import com.mageddo.commons.caching.stats.CacheStats;
+import com.mageddo.commons.concurrent.ThreadPool;
 import com.mageddo.commons.lang.tuple.Pair;
 
-public class LruTTLCache implements Cache {
+import lombok.Builder;
 
-  private final Integer capacity;
-  private final Map<String, Object> _lock;
-  private final Map<String, Wrapper> store;
-  private final Duration ttl;
-  private final boolean cacheNulls;
-  private final ConcurrentSkipListSet<WrapperIndex> leastUsedIndex;
-  private final ConcurrentSkipListSet<WrapperIndex> expirationIndex;
+/**
+ * {@link TypedLruTTLCache} of string keys exposed as a {@link Cache}.
+ */
+public class LruTTLCache extends CacheAdapter {
+
+  private final TypedLruTTLCache<String, Object> cache;
 
   public LruTTLCache(Duration ttl) {
     this(null, ttl, true);
@@ -32,169 +30,165 @@ public class LruTTLCache implements Cache {
   }
 
   public LruTTLCache(Integer capacity, Duration ttl, boolean cacheNulls) {
-    this.capacity = capacity;
-    this._lock = new ConcurrentHashMap<>();
-    this.store = new ConcurrentHashMap<>();
-    this.ttl = ttl;
-    this.cacheNulls = cacheNulls;
-    this.leastUsedIndex = new ConcurrentSkipListSet<>(WrapperIndex.leastUsedIndex());
-    this.expirationIndex = new ConcurrentSkipListSet<>(WrapperIndex.expirationIndex());
+    this(capacity, ttl, cacheNulls, null, null, null, null, null, null, null, null, null, null);
+  }
+
+  /**
+   * @param timerWheelTick when set, expiration is tracked by a hierarchical timing wheel with
+   *                       this resolution and a background task on
+   *                       {@link ThreadPool#scheduled()} runs {@link #cleanUp()} every tick, so
+   *                       the expired entries are reclaimed and the buffered reads applied even
+   *                       if the cache isn't written anymore.
+   * @param ticker         time source of the expirations, {@link Ticker#system()} by default.
+   * @param evictionMode   how to choose the entry to evict when over capacity,
+   *                       {@link EvictionMode#LRU} by default.
+   * @param refreshAfter   when set, should be shorter than the TTL, a computeIfAbsent call which
+   *                       finds an entry older than it returns the current value right away and
+   *                       reloads it once in background, so hot keys don't block when expiring.
+   * @param executor       where the background work, like refreshes and removal
+   *                       notifications, runs, {@link ThreadPool#main()} by default.
+   * @param maximumWeight  when set, entries are also evicted while the sum of their weights,
+   *                       given by the weigher, is greater than it, the TinyLFU regions are
+   *                       still sized by the capacity, without it LRU is used.
+   * @param recordStats    when true, hits, misses, loads and removals are counted, see
+   *                       {@link #stats()}, off by default.
+   * @param removalListener told about every entry which leaves the cache, asynchronously on the
+   *                       executor, see {@link RemovalListener}.
+   * @param expiry         when set, chooses the TTL of each entry instead of the fixed one, see
+   *                       {@link Expiry}.
+   */
+  @Builder
+  private LruTTLCache(
+      Integer capacity, Duration ttl, Boolean cacheNulls, Duration timerWheelTick, Ticker ticker,
+      EvictionMode evictionMode, Duration refreshAfter, Executor executor, Long maximumWeight,
+      Weigher<String, Object> weigher, Boolean recordStats,
+      RemovalListener<String, Object> removalListener, Expiry<String, Object> expiry
+  ) {
+    this(TypedLruTTLCache
+        .<String, Object>builder()
+        .capacity(capacity)
+        .ttl(ttl)
+        .cacheNulls(cacheNulls)
+        .timerWheelTick(timerWheelTick)
+        .ticker(ticker)
+        .evictionMode(evictionMode)
+        .refreshAfter(refreshAfter)
+        .executor(executor)
+        .maximumWeight(maximumWeight)
+        .weigher(weigher)
+        .recordStats(recordStats)
+        .removalListener(removalListener)
+        .expiry(expiry)
+        .build()
+    );
+  }
+
+  LruTTLCache(TypedLruTTLCache<String, Object> cache) {
+    super(cache);
+    this.cache = cache;
+  }
+
+  /**
+   * Removes the key only if it's still mapped to this exact value instance.
+   */
+  public boolean remove(String key, Object value) {
+    return this.cache.remove(key, value);
+  }
+
+  /**
+   * @see TypedLruTTLCache#put(Object, Object, Duration)
+   */
+  public void put(String key, Object value, Duration ttl) {
+    this.cache.put(key, value, ttl);
+  }
+
+  /**
+   * @see TypedLruTTLCache#computeIfAbsentWithTTL(Object, Function)
+   */
+  public <T> T computeIfAbsentWithTTL(
+      String key, Function<? super String, ? extends Pair<T, Duration>> mappingFunction
+  ) {
+    return (T) this.cache.computeIfAbsentWithTTL(key, (Function) mappingFunction);
   }
 
-  @Override
-  public boolean containsKey(String key) {
-    return !this.checkExpired(key);
+  /**
+   * @see TypedLruTTLCache#cleanUp()
+   */
+  public void cleanUp() {
+    this.cache.cleanUp();
   }
 
-  @Override
-  public <T> T get(String k) {
-    if (this.checkExpired(k)) {
-      return null;
-    }
-    return (T) this.store.get(k)
-        .getValue();
+  /**
+   * Keys are written as UTF-8 and values by {@link Serializer#java()}.
+   *
+   * @see TypedLruTTLCache#snapshot(Path)
+   */
+  public void snapshot(Path file) {
+    this.snapshot(file, Serializer.java());
   }
 
-  @Override
-  public <T> T get(String k, T def) {
-    if (this.store.containsKey(k)) {
-      return this.get(k);
-    }
-    return def;
+  public void snapshot(Path file, Serializer<?> serializer) {
+    this.cache.snapshot(file, Serializer.utf8(), (Serializer<Object>) serializer);
   }
 
-  @Override
-  public <T> T computeIfAbsent(String key, Function<? super String, ? extends T> mappingFunction) {
-    return this.computeIfAbsentWithTTL(key, k -> {
-      final T v = mappingFunction.apply(k);
-      if (v == null && !this.cacheNulls) {
-        return null;
-      }
-      return Pair.of(v, this.ttl);
-    });
+  /**
+   * @see TypedLruTTLCache#restore(Path)
+   */
+  public int restore(Path file) {
+    return this.restore(file, Serializer.java());
   }
 
-  @Override
-  public void clear() {
-    this.store.clear();
+  public int restore(Path file, Serializer<?> serializer) {
+    return this.cache.restore(file, Serializer.utf8(), (Serializer<Object>) serializer);
   }
 
-  public <T> T computeIfAbsentWithTTL(
-      String key, Function<? super String, ? extends Pair<T, Duration>> mappingFunction
-  ) {
-
-    this._lock.compute(key, (_1, _2) -> {
-      this.checkSizeAndExpiration();
-      final Wrapper w = this.store.compute(key, (k, v) -> {
-
-        if (v != null && !v.hasExpired()) {
-          return v;
-        }
-
-        final Pair<T, Duration> nv = mappingFunction.apply(key);
-        if (nv == null) {
-          if (this.cacheNulls) {
-            return Wrapper.of(null, this.ttl);
-          }
-          return null;
-        }
-        return Wrapper.of(nv.getKey(), nv.getValue());
-
-      });
-      this.updateIndexes(key, w);
-      return null;
-    });
-    return (T) Objects.mapOrNull(this.store.get(key), Wrapper::getValue);
+  /**
+   * @see TypedLruTTLCache#stats()
+   */
+  public CacheStats stats() {
+    return this.cache.stats();
   }
 
   public Integer getCapacity() {
-    return capacity;
+    return this.cache.getCapacity();
   }
 
   public int getSize() {
-    return this.store.size();
-  }
-
-  boolean canCacheValue(Object v) {
-    return this.cacheNulls || v != null;
-  }
-
-  boolean checkExpired(String key) {
-    if (!this.store.containsKey(key) || (!this.cacheNulls && this.store.get(key) == null)) {
-      return true;
-    }
-    final boolean expired = this.isExpired(key);
-    if (expired) {
-      this.store.remove(key);
-    }
-    return expired;
-  }
-
-  private boolean isExpired(String key) {
-    return this.store.containsKey(key)
-        && this.store
-        .get(key)
-        .hasExpired();
-  }
-
-  private Wrapper updateIndexes(String key, Wrapper wrapper) {
-    if (wrapper == null) {
-      return null;
-    }
-    final WrapperIndex ind = WrapperIndex.of(key, wrapper);
-    this.leastUsedIndex.remove(ind);
-    this.leastUsedIndex.add(ind);
-
-    this.expirationIndex.remove(ind);
-    this.expirationIndex.add(ind);
-    return wrapper;
-  }
-
-  private void checkSizeAndExpiration() {
-    this.removeExpired();
-    this.removeLeastUsed();
-  }
-
-  private void removeExpired() {
-    final Iterator<WrapperIndex> it = this.expirationIndex.iterator();
-    while (it.hasNext()) {
-      final WrapperIndex ind = it.next();
-      final boolean expired = ind
-          .getWrapper()
-          .hasExpired();
-//      System.out.printf("expired: %s, expired=%b%n", ind.getWrapper().getWillExpireAt(), expired);
-      if (!expired) {
-        break;
-      }
-      this.store.remove(ind.getKey());
-      it.remove();
-    }
-  }
-
-  // todo necessary to create a queue to add the access counter
-  //     and create a thread to update the index
-  private void removeLeastUsed() {
-    if (this.capacity == null || this.getSize() < this.capacity) {
-      return;
-    }
-    final Iterator<WrapperIndex> it = this.leastUsedIndex.iterator();
-    while (this.isFull() && it.hasNext()) {
-      final WrapperIndex ind = it.next();
-      this.store.remove(ind.getKey());
-      it.remove();
-    }
+    return this.cache.getSize();
+  }
+
+  public Long getMaximumWeight() {
+    return this.cache.getMaximumWeight();
+  }
+
+  public long getWeightedSize() {
+    return this.cache.getWeightedSize();
   }
 
   public boolean isFull() {
-    return this.getSize() >= this.getCapacity();
+    return this.cache.isFull();
   }
 
   public Map<String, Wrapper> asMap() {
-    return Collections.unmodifiableMap(this.store);
+    return this.cache.asMap();
+  }
+
+  /**
+   * The typed cache backing this one.
+   */
+  public TypedLruTTLCache<String, Object> getCache() {
+    return cache;
+  }
+
+  Wrapper putIfAbsent(Wrapper w) {
+    return this.cache.putIfAbsent(w);
+  }
+
+  void onEviction(Consumer<Wrapper> evictionHook) {
+    this.cache.onEviction(evictionHook);
   }
 
-  @Override
-  public boolean isEmpty() {
-    return this.store.isEmpty();
+  void onEvicting(Consumer<Wrapper> evictingHook) {
+    this.cache.onEvicting(evictingHook);
   }
 }
@@ -0,0 +1,22 @@
+package com.mageddo.commons.caching;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ticker which only advances when told to, useful to test expiration without sleeping.
+ */
+public class ManualTicker implements Ticker {
+
+  private final AtomicLong nanos = new AtomicLong();
+
+  @Override
+  public long read() {
+    return this.nanos.get();
+  }
+
+  public ManualTicker advance(Duration duration) {
+    this.nanos.addAndGet(duration.toNanos());
+    return this;
+  }
+}
@@ -0,0 +1,19 @@
+package com.mageddo.commons.caching;
+
+import java.util.Map;
+
+/**
+ * {@link Cache} which also accepts values computed elsewhere and single key removals, like the
+ * ones {@link com.mageddo.commons.caching.invalidation.CacheInvalidator} does.
+ */
+public interface MutableCache extends Cache {
+
+  /**
+   * Replaces the current value.
+   */
+  void put(String key, Object value);
+
+  void putAll(Map<String, ?> entries);
+
+  void remove(String key);
+}
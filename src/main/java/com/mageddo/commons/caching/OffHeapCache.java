@@ -0,0 +1,340 @@
+package com.mageddo.commons.caching;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import com.mageddo.commons.caching.internal.OffHeapIndex;
+import com.mageddo.commons.caching.internal.PageAllocator;
+import com.mageddo.commons.caching.internal.SlabStore;
+import com.mageddo.commons.caching.internal.Wrapper;
+import com.mageddo.commons.concurrent.SingleFlight;
+import com.mageddo.commons.lang.Objects;
+
+import lombok.Builder;
+
+/**
+ * Keeps the entries serialized out of the heap, on direct buffers or on a memory mapped file, so
+ * it can hold gigabytes without adding work to the garbage collector, the only objects per entry
+ * are the ones created by reads. The memory is allocated on pages as it's needed, up to the
+ * maximum bytes, then each page size class evicts its entries by the clock algorithm, an
+ * approximated LRU, the expired ones first. Keys are hashed to independent segments, each one
+ * with its own lock and index, the pages are shared, but a quarter of the even share of each
+ * segment is reserved to it, so skewed keys can't starve the other segments. Values are copies,
+ * every read deserializes a new instance.
+ *
+ * @see SlabStore
+ */
+public class OffHeapCache implements MutableCache, Closeable {
+
+  public static final int DEFAULT_PAGE_SIZE = 1 << 20;
+  public static final int DEFAULT_SEGMENTS = 16;
+
+  static final Object ABSENT = new Object();
+
+  /**
+   * Fraction of the even share of pages reserved to each segment, one over it.
+   */
+  static final int RESERVED_SHARE = 4;
+
+  private final long maximumBytes;
+  private final Duration ttl;
+  private final Serializer<Object> serializer;
+  private final Ticker ticker;
+  private final PageAllocator allocator;
+  private final Segment[] segments;
+  private final SingleFlight<String, Object> inFlight;
+
+  public OffHeapCache(long maximumBytes, Duration ttl) {
+    this(maximumBytes, ttl, null, null, null, null, null);
+  }
+
+  /**
+   * @param maximumBytes memory taken at most, rounded down to whole pages, at least one.
+   * @param ttl          how long the entries live, null to never expire.
+   * @param serializer   {@link Serializer#java()} by default.
+   * @param file         when set the pages are memory mapped regions of this file instead of
+   *                     direct buffers, its previous content is ignored.
+   * @param pageSize     {@link #DEFAULT_PAGE_SIZE} by default, also the biggest entry which can
+   *                     be stored, bigger ones are just not cached.
+   * @param segments     {@link #DEFAULT_SEGMENTS} by default, less when there are less than 4
+   *                     pages for each.
+   * @param ticker       time source of the expirations, {@link Ticker#system()} by default.
+   */
+  @Builder
+  private OffHeapCache(
+      long maximumBytes, Duration ttl, Serializer<?> serializer, Path file, Integer pageSize,
+      Integer segments, Ticker ticker
+  ) {
+    final int size = Objects.firstNonNull(pageSize, DEFAULT_PAGE_SIZE);
+    if (size < 256) {
+      throw new IllegalArgumentException("pageSize must be at least 256 bytes: " + size);
+    }
+    this.maximumBytes = maximumBytes;
+    this.ttl = ttl;
+    this.serializer = (Serializer<Object>) Objects.useItOrDefault(serializer, Serializer::java);
+    this.ticker = Objects.useItOrDefault(ticker, Ticker::system);
+    this.allocator = file == null
+        ? PageAllocator.direct(maximumBytes, size)
+        : PageAllocator.mapped(file, maximumBytes, size);
+    final int count = Math.max(1, Math.min(
+        Objects.firstNonNull(segments, DEFAULT_SEGMENTS), this.allocator.getMaxPages() / 4
+    ));
+    final int reserved = Math.max(1, this.allocator.getMaxPages() / count / RESERVED_SHARE);
+    this.segments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      this.segments[i] = new Segment(new SlabStore(this.allocator, reserved));
+    }
+    this.inFlight = new SingleFlight<>();
+  }
+
+  @Override
+  public boolean containsKey(String key) {
+    final byte[] bytes = toBytes(key);
+    final Segment segment = this.segmentFor(key);
+    segment.lock.lock();
+    try {
+      return segment.store.contains(bytes, key.hashCode(), this.ticker.read());
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public <T> T get(String k) {
+    return this.get(k, null);
+  }
+
+  @Override
+  public <T> T get(String k, T def) {
+    final Object v = this.getOrAbsent(k);
+    return v == ABSENT ? def : (T) v;
+  }
+
+  @Override
+  public <T> Map<String, T> getAll(Collection<String> keys) {
+    final Map<String, T> found = new LinkedHashMap<>();
+    for (final String key : keys) {
+      final Object v = this.getOrAbsent(key);
+      if (v != ABSENT) {
+        found.put(key, (T) v);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * The value is serialized before taking the segment lock, entries bigger than the page size
+   * are not cached.
+   */
+  @Override
+  public void put(String key, Object value) {
+    final long now = this.ticker.read();
+    this.put(key, value, this.ttl == null ? Long.MAX_VALUE : Wrapper.plus(now, this.ttl), now);
+  }
+
+  @Override
+  public void putAll(Map<String, ?> entries) {
+    entries.forEach(this::put);
+  }
+
+  /**
+   * The computation runs outside the segment lock, concurrent callers for the same key wait for
+   * a single computation.
+   */
+  @Override
+  public <T> T computeIfAbsent(String key, Function<? super String, ? extends T> mappingFunction) {
+    final Object cached = this.getOrAbsent(key);
+    if (cached != ABSENT) {
+      return (T) cached;
+    }
+    return (T) this.inFlight.execute(key, () -> {
+      final Object current = this.getOrAbsent(key);
+      if (current != ABSENT) {
+        return current;
+      }
+      final T v = mappingFunction.apply(key);
+      this.put(key, v);
+      return v;
+    });
+  }
+
+  /**
+   * The missing keys are loaded in a single call, outside the segments locks, concurrent calls
+   * missing the same keys may load them more than once.
+   */
+  @Override
+  public <T> Map<String, T> computeAllIfAbsent(
+      Collection<String> keys,
+      Function<? super Set<String>, ? extends Map<String, ? extends T>> mappingFunction
+  ) {
+    final Map<String, T> found = this.getAll(keys);
+    final Set<String> missing = new LinkedHashSet<>(keys);
+    missing.removeAll(found.keySet());
+    if (missing.isEmpty()) {
+      return found;
+    }
+    final Map<String, ? extends T> loaded = mappingFunction.apply(missing);
+    final Map<String, T> result = new LinkedHashMap<>();
+    for (final String key : keys) {
+      if (found.containsKey(key)) {
+        result.put(key, found.get(key));
+      } else if (loaded != null && loaded.containsKey(key)) {
+        final T v = loaded.get(key);
+        this.put(key, v);
+        result.put(key, v);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void remove(String key) {
+    final byte[] bytes = toBytes(key);
+    final Segment segment = this.segmentFor(key);
+    segment.lock.lock();
+    try {
+      segment.store.remove(bytes, key.hashCode());
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  /**
+   * Gives the memory back to the allocator, so any segment can use it again.
+   */
+  @Override
+  public void clear() {
+    for (final Segment segment : this.segments) {
+      segment.lock.lock();
+      try {
+        segment.store.clear();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.getSize() == 0;
+  }
+
+  /**
+   * Removes the expired entries, they are also removed when read or when the clock finds them
+   * while evicting.
+   */
+  public void cleanUp() {
+    final long now = this.ticker.read();
+    for (final Segment segment : this.segments) {
+      segment.lock.lock();
+      try {
+        segment.store.removeExpired(now);
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Clears the cache and closes the mapped file, if any, the mapped memory is only released
+   * when the pages are garbage collected.
+   */
+  @Override
+  public void close() {
+    this.clear();
+    this.allocator.close();
+  }
+
+  public long getMaximumBytes() {
+    return maximumBytes;
+  }
+
+  /**
+   * @return the stored entries, expired ones which weren't removed yet included.
+   */
+  public int getSize() {
+    int size = 0;
+    for (final Segment segment : this.segments) {
+      segment.lock.lock();
+      try {
+        size += segment.store.size();
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @param expiresAt ticker nanos when the entry expires.
+   */
+  void put(String key, Object value, long expiresAt, long now) {
+    final byte[] bytes = toBytes(key);
+    final byte[] serialized = value == null ? null : this.serializer.serialize(value);
+    final Segment segment = this.segmentFor(key);
+    segment.lock.lock();
+    try {
+      segment.store.put(bytes, key.hashCode(), serialized, expiresAt, now);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  /**
+   * @return {@link #ABSENT} when the key isn't cached, so a cached null can be told apart.
+   */
+  Object getOrAbsent(String key) {
+    return this.getOrAbsent(key, null);
+  }
+
+  /**
+   * @param expiresAt when not null, its first position is set to the found entry expiration.
+   */
+  Object getOrAbsent(String key, long[] expiresAt) {
+    final byte[] bytes = toBytes(key);
+    final Segment segment = this.segmentFor(key);
+    final byte[] value;
+    segment.lock.lock();
+    try {
+      final long address = segment.store.find(bytes, key.hashCode(), this.ticker.read());
+      if (address == OffHeapIndex.EMPTY) {
+        return ABSENT;
+      }
+      value = segment.store.valueOf(address);
+      if (expiresAt != null) {
+        expiresAt[0] = segment.store.expiresAtOf(address);
+      }
+    } finally {
+      segment.lock.unlock();
+    }
+    return value == SlabStore.NULL_VALUE ? null : this.serializer.deserialize(value);
+  }
+
+  Segment segmentFor(String key) {
+    final int h = key.hashCode();
+    return this.segments[((h ^ (h >>> 16)) & Integer.MAX_VALUE) % this.segments.length];
+  }
+
+  static byte[] toBytes(String key) {
+    return key.getBytes(StandardCharsets.UTF_8);
+  }
+
+  static class Segment {
+
+    final ReentrantLock lock = new ReentrantLock();
+    final SlabStore store;
+
+    Segment(SlabStore store) {
+      this.store = store;
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package com.mageddo.commons.caching;
+
+/**
+ * Why an entry left the cache.
+ */
+public enum RemovalCause {
+
+  /**
+   * Evicted because the cache was over its capacity or maximum weight.
+   */
+  SIZE,
+
+  /**
+   * Its TTL elapsed.
+   */
+  EXPIRED,
+
+  /**
+   * Removed or cleared by the user.
+   */
+  EXPLICIT,
+
+  /**
+   * Its value was replaced by a new one.
+   */
+  REPLACED
+}
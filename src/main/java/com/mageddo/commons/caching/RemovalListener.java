@@ -0,0 +1,13 @@
+package com.mageddo.commons.caching;
+
+/**
+ * Told about the entries which left the cache, like to close resources or write them back. It's
+ * called on the cache executor, in batches, after the removal already happened, so it never
+ * delays the thread which caused it, but may see the removals a bit later, only in the order
+ * they were recorded.
+ */
+@FunctionalInterface
+public interface RemovalListener<K, V> {
+
+  void onRemoval(K key, V value, RemovalCause cause);
+}
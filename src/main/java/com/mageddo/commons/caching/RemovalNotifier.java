@@ -0,0 +1,88 @@
+package com.mageddo.commons.caching;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Queues the removals and delivers them to the listener on the executor, at most one delivery
+ * task is scheduled at a time and it takes everything queued until then, so removals happening
+ * together are delivered as one batch and the listener is never called concurrently.
+ */
+@Slf4j
+class RemovalNotifier<K, V> {
+
+  static final int MAX_BATCH = 1024;
+
+  private final RemovalListener<K, V> listener;
+  private final Executor executor;
+  private final Queue<Notification> queue;
+  private final AtomicBoolean scheduled;
+
+  RemovalNotifier(RemovalListener<K, V> listener, Executor executor) {
+    this.listener = listener;
+    this.executor = executor;
+    this.queue = new ConcurrentLinkedQueue<>();
+    this.scheduled = new AtomicBoolean();
+  }
+
+  void notify(Object key, Object value, RemovalCause cause) {
+    this.queue.offer(new Notification(key, value, cause));
+    this.schedule();
+  }
+
+  private void schedule() {
+    if (this.queue.isEmpty() || !this.scheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      this.executor.execute(this::deliver);
+    } catch (Throwable e) {
+      this.scheduled.set(false);
+      log.warn("status=removalNotificationNotScheduled, pending={}, msg={}",
+          this.queue.size(), e.getMessage(), e
+      );
+    }
+  }
+
+  /**
+   * Delivers a batch then gives the executor thread back, scheduling itself again if there is
+   * more, so a steady stream of removals can't starve the other tasks.
+   */
+  private void deliver() {
+    try {
+      for (int i = 0; i < MAX_BATCH; i++) {
+        final Notification n = this.queue.poll();
+        if (n == null) {
+          break;
+        }
+        try {
+          this.listener.onRemoval((K) n.key, (V) n.value, n.cause);
+        } catch (Throwable e) {
+          log.warn("status=removalListenerFailed, key={}, cause={}, msg={}",
+              n.key, n.cause, e.getMessage(), e
+          );
+        }
+      }
+    } finally {
+      this.scheduled.set(false);
+      this.schedule();
+    }
+  }
+
+  static class Notification {
+
+    final Object key;
+    final Object value;
+    final RemovalCause cause;
+
+    Notification(Object key, Object value, RemovalCause cause) {
+      this.key = key;
+      this.value = value;
+      this.cause = cause;
+    }
+  }
+}
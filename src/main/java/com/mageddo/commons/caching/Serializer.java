@@ -0,0 +1,63 @@
+package com.mageddo.commons.caching;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts the values to bytes and back, used by the caches which keep their values out of the
+ * heap, like {@link OffHeapCache}. Never called with null values.
+ */
+public interface Serializer<T> {
+
+  byte[] serialize(T value);
+
+  T deserialize(byte[] bytes);
+
+  static Serializer<String> utf8() {
+    return new Serializer<String>() {
+      @Override
+      public byte[] serialize(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+      }
+
+      @Override
+      public String deserialize(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+      }
+    };
+  }
+
+  /**
+   * Standard java serialization, the values must implement {@link java.io.Serializable}.
+   */
+  static <T> Serializer<T> java() {
+    return new Serializer<T>() {
+      @Override
+      public byte[] serialize(T value) {
+        final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bout)) {
+          out.writeObject(value);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        return bout.toByteArray();
+      }
+
+      @Override
+      public T deserialize(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+          return (T) in.readObject();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    };
+  }
+}
@@ -0,0 +1,63 @@
+package com.mageddo.commons.caching;
+
+import java.util.concurrent.TimeUnit;
+
+import com.mageddo.commons.concurrent.ThreadPool;
+
+/**
+ * Monotonic time source used to compute and check expirations, in nanoseconds, only the
+ * difference between two reads is meaningful.
+ */
+@FunctionalInterface
+public interface Ticker {
+
+  long read();
+
+  static Ticker system() {
+    return System::nanoTime;
+  }
+
+  /**
+   * A ticker which is refreshed every millisecond by {@link ThreadPool#scheduled()}, reading it
+   * is just a volatile read, useful when the clock call cost matters more than the precision.
+   */
+  static Ticker coarse() {
+    return CoarseTicker.INSTANCE;
+  }
+
+  /**
+   * Started when first used, by the class initialization, so the shared scheduler isn't created
+   * from inside another lazy initialization.
+   */
+  class CoarseTicker implements Ticker {
+
+    private static final CoarseTicker INSTANCE = start();
+
+    private volatile long nanos = System.nanoTime();
+
+    private CoarseTicker() {
+    }
+
+    /**
+     * Reads the clock again once the refresher is scheduled, starting the scheduler may take a
+     * while.
+     */
+    static CoarseTicker start() {
+      final CoarseTicker ticker = new CoarseTicker();
+      ThreadPool
+          .scheduled()
+          .scheduleAtFixedRate(ticker::refresh, 1, 1, TimeUnit.MILLISECONDS);
+      ticker.refresh();
+      return ticker;
+    }
+
+    void refresh() {
+      this.nanos = System.nanoTime();
+    }
+
+    @Override
+    public long read() {
+      return this.nanos;
+    }
+  }
+}
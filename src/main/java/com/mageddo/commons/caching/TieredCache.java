@@ -0,0 +1,263 @@
+package com.mageddo.commons.caching;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import com.mageddo.commons.caching.internal.Wrapper;
+import com.mageddo.commons.lang.Objects;
+
+import lombok.Builder;
+
+/**
+ * Two levels cache, a small {@link LruTTLCache} on the heap over a bigger {@link OffHeapCache},
+ * on direct memory or on a memory mapped file. The levels are exclusive: entries evicted by size
+ * from the first level are moved to the second instead of discarded and second level hits are
+ * moved back to the first one, so the hot entries stay deserialized on the heap and the cold
+ * ones cost no heap at all. An entry expiration is fixed when it's written, moving it between
+ * the levels keeps it.
+ */
+public class TieredCache implements MutableCache {
+
+  static final Object ABSENT = OffHeapCache.ABSENT;
+
+  private final LruTTLCache l1;
+  private final OffHeapCache l2;
+  private final Ticker ticker;
+  private final Duration ttl;
+  private final ConcurrentMap<String, Wrapper> demoting;
+
+  /**
+   * @param capacity       first level entries.
+   * @param maximumBytes   second level memory, see {@link OffHeapCache}.
+   * @param ttl            how long the entries live, on any level.
+   * @param evictionMode   first level eviction, {@link EvictionMode#LRU} by default.
+   * @param timerWheelTick first level timer wheel resolution, see {@link LruTTLCache}.
+   * @param serializer     second level serializer, {@link Serializer#java()} by default.
+   * @param file           when set, the second level is memory mapped on this file.
+   * @param pageSize       second level page size, see {@link OffHeapCache}.
+   * @param ticker         time source of both levels, {@link Ticker#system()} by default.
+   */
+  @Builder
+  private TieredCache(
+      int capacity, long maximumBytes, Duration ttl, EvictionMode evictionMode,
+      Duration timerWheelTick, Serializer<?> serializer, Path file, Integer pageSize, Ticker ticker
+  ) {
+    this.ttl = ttl;
+    this.ticker = Objects.useItOrDefault(ticker, Ticker::system);
+    this.l1 = LruTTLCache
+        .builder()
+        .capacity(capacity)
+        .ttl(ttl)
+        .evictionMode(evictionMode)
+        .timerWheelTick(timerWheelTick)
+        .ticker(this.ticker)
+        .build();
+    this.l2 = OffHeapCache
+        .builder()
+        .maximumBytes(maximumBytes)
+        .ttl(ttl)
+        .serializer(serializer)
+        .file(file)
+        .pageSize(pageSize)
+        .ticker(this.ticker)
+        .build();
+    this.demoting = new ConcurrentHashMap<>();
+    this.l1.onEvicting(this::evicting);
+    this.l1.onEviction(this::demote);
+  }
+
+  @Override
+  public boolean containsKey(String key) {
+    return this.l1.containsKey(key) || this.l2.containsKey(key);
+  }
+
+  @Override
+  public <T> T get(String k) {
+    return this.get(k, null);
+  }
+
+  @Override
+  public <T> T get(String k, T def) {
+    final Object v = this.getOrAbsent(k);
+    return v == ABSENT ? def : (T) v;
+  }
+
+  @Override
+  public <T> Map<String, T> getAll(Collection<String> keys) {
+    final Map<String, T> found = new LinkedHashMap<>();
+    for (final String key : keys) {
+      final Object v = this.getOrAbsent(key);
+      if (v != ABSENT) {
+        found.put(key, (T) v);
+      }
+    }
+    return found;
+  }
+
+  @Override
+  public void put(String key, Object value) {
+    this.l1.put(key, value);
+    this.removeFromL2(key);
+  }
+
+  @Override
+  public void putAll(Map<String, ?> entries) {
+    this.l1.putAll(entries);
+    entries
+        .keySet()
+        .forEach(this::removeFromL2);
+  }
+
+  /**
+   * Second level entries are promoted keeping their expiration, the missing ones are computed by
+   * the first level, so concurrent callers for the same key wait for a single computation.
+   */
+  @Override
+  public <T> T computeIfAbsent(String key, Function<? super String, ? extends T> mappingFunction) {
+    final Object cached = this.getOrAbsent(key);
+    if (cached != ABSENT) {
+      return (T) cached;
+    }
+    return this.l1.computeIfAbsent(key, k -> {
+      final T v = mappingFunction.apply(k);
+      this.removeFromL2(k);
+      return v;
+    });
+  }
+
+  /**
+   * The keys missing on both levels are loaded in a single call, concurrent calls missing the
+   * same keys may load them more than once.
+   */
+  @Override
+  public <T> Map<String, T> computeAllIfAbsent(
+      Collection<String> keys,
+      Function<? super Set<String>, ? extends Map<String, ? extends T>> mappingFunction
+  ) {
+    final Map<String, T> found = this.getAll(keys);
+    final Set<String> missing = new LinkedHashSet<>(keys);
+    missing.removeAll(found.keySet());
+    if (missing.isEmpty()) {
+      return found;
+    }
+    final Map<String, ? extends T> loaded = mappingFunction.apply(missing);
+    final Map<String, T> result = new LinkedHashMap<>();
+    final Map<String, Object> toCache = new LinkedHashMap<>();
+    for (final String key : keys) {
+      if (found.containsKey(key)) {
+        result.put(key, found.get(key));
+      } else if (loaded != null && loaded.containsKey(key)) {
+        final T v = loaded.get(key);
+        toCache.put(key, v);
+        result.put(key, v);
+      }
+    }
+    this.putAll(toCache);
+    return result;
+  }
+
+  @Override
+  public void remove(String key) {
+    this.l1.remove(key);
+    this.removeFromL2(key);
+  }
+
+  @Override
+  public void clear() {
+    this.l1.clear();
+    this.demoting.clear();
+    this.l2.clear();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.l1.isEmpty() && this.l2.isEmpty();
+  }
+
+  public LruTTLCache getL1() {
+    return l1;
+  }
+
+  public OffHeapCache getL2() {
+    return l2;
+  }
+
+  /**
+   * @return {@link #ABSENT} when the key isn't cached on any level, so a cached null can be told
+   * apart.
+   */
+  Object getOrAbsent(String key) {
+    final Object v = this.l1.get(key, ABSENT);
+    if (v != ABSENT) {
+      return v;
+    }
+    return this.promote(key);
+  }
+
+  /**
+   * Moves the entry from the second level back to the first one, keeping its expiration. It's
+   * only inserted if the first level is still missing the key, so a concurrent put is never
+   * overwritten by the older second level value.
+   */
+  Object promote(String key) {
+    final long[] expiresAt = new long[1];
+    final Object v = this.l2.getOrAbsent(key, expiresAt);
+    if (v == ABSENT) {
+      return ABSENT;
+    }
+    final long writtenAt = expiresAt[0] - this.ttl.toNanos();
+    final Wrapper promoted = new Wrapper(key, v, writtenAt, expiresAt[0], this.ttl);
+    final Wrapper current = this.l1.putIfAbsent(promoted);
+    this.l2.remove(key);
+    return current.getValue();
+  }
+
+  /**
+   * Called by the first level while evicting, under its eviction lock, so a write or removal of
+   * the key happening before the entry is demoted can cancel it.
+   */
+  void evicting(Wrapper w) {
+    this.demoting.put((String) w.getKey(), w);
+  }
+
+  /**
+   * Runs after the first level released its eviction lock, so the serialization doesn't stall
+   * its writers. The entry is only demoted while its eviction is still pending, atomically with
+   * {@link #removeFromL2(String)}, so a key written or removed since it was evicted never gets
+   * its old value back on the second level.
+   */
+  void demote(Wrapper w) {
+    final String key = (String) w.getKey();
+    try {
+      this.demoting.computeIfPresent(key, (k, pending) -> {
+        if (pending != w) {
+          return pending;
+        }
+        final long now = this.ticker.read();
+        if (!w.hasExpired(now) && !this.l1.asMap().containsKey(k)) {
+          this.l2.put(k, w.getValue(), w.getExpiresAt(), now);
+        }
+        return null;
+      });
+    } finally {
+      this.demoting.remove(key, w);
+    }
+  }
+
+  /**
+   * Cancels a pending demotion of the key, waiting for one which is running, then removes it
+   * from the second level.
+   */
+  void removeFromL2(String key) {
+    this.demoting.remove(key);
+    this.l2.remove(key);
+  }
+}
@@ -0,0 +1,47 @@
+package com.mageddo.commons.caching;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * {@link Cache} with typed keys and values, keys can be any object with proper equals and
+ * hashCode, like a {@link com.mageddo.commons.lang.tuple.Pair}, so composite keys don't need to
+ * be concatenated into strings. {@link CacheAdapter} exposes one as a {@link Cache}.
+ */
+public interface TypedCache<K, V> {
+
+  boolean containsKey(K key);
+
+  V get(K k);
+
+  V get(K k, V def);
+
+  /**
+   * @return the cached entries of the keys, in the keys order, absent keys are left out.
+   */
+  Map<K, V> getAll(Collection<? extends K> keys);
+
+  void put(K key, V value);
+
+  void putAll(Map<? extends K, ? extends V> entries);
+
+  V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction);
+
+  /**
+   * Same as {@link #computeIfAbsent(Object, Function)} for many keys, the absent ones are
+   * passed together to a single mapping function call, keys left out of its result aren't
+   * cached nor returned.
+   */
+  Map<K, V> computeAllIfAbsent(
+      Collection<? extends K> keys,
+      Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> mappingFunction
+  );
+
+  void remove(K key);
+
+  void clear();
+
+  boolean isEmpty();
+}
@@ -0,0 +1,846 @@
+package com.mageddo.commons.caching;
+
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.mageddo.commons.caching.internal.EvictionPolicy;
+import com.mageddo.commons.caching.internal.ExpirationBuckets;
+import com.mageddo.commons.caching.internal.ExpirationQueue;
+import com.mageddo.commons.caching.internal.ReadBuffer;
+import com.mageddo.commons.caching.internal.SnapshotFile;
+import com.mageddo.commons.caching.internal.TimerWheel;
+import com.mageddo.commons.caching.internal.Wrapper;
+import com.mageddo.commons.caching.stats.CacheStats;
+import com.mageddo.commons.caching.stats.StatsCounter;
+import com.mageddo.commons.concurrent.SingleFlight;
+import com.mageddo.commons.concurrent.ThreadPool;
+import com.mageddo.commons.lang.Objects;
+import com.mageddo.commons.lang.tuple.Pair;
+
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Thread safe cache bounded by size or weight where every entry expires after its TTL. Reads
+ * are lock free, they record the access on a lossy buffer applied to the eviction policy by
+ * whoever holds the eviction lock next, writes and computations only wait for the same key.
+ *
+ * @see LruTTLCache
+ */
+@Slf4j
+public class TypedLruTTLCache<K, V> implements TypedCache<K, V> {
+
+  /**
+   * Timer wheel resolution used when an expiry is set without a timerWheelTick.
+   */
+  public static final Duration DEFAULT_TIMER_WHEEL_TICK = Duration.ofSeconds(1);
+
+  private final Integer capacity;
+  private final Long maximumWeight;
+  private final Weigher<K, V> weigher;
+  private long weightedSize;
+  private final SingleFlight<K, Wrapper> inFlight;
+  private final Map<K, Wrapper> store;
+  private final Duration ttl;
+  private final boolean cacheNulls;
+  private final ReentrantLock evictionLock;
+  private final EvictionPolicy evictionPolicy;
+  private final ReadBuffer readBuffer;
+  private final ExpirationQueue expirations;
+  private final Ticker ticker;
+  private final Duration refreshAfter;
+  private final Set<K> refreshing;
+  private final Executor executor;
+  private final StatsCounter stats;
+  private final RemovalNotifier<K, V> notifier;
+  private final Expiry<K, V> expiry;
+  private Consumer<Wrapper> evictingHook;
+  private Consumer<Wrapper> evictionHook;
+
+  public TypedLruTTLCache(Duration ttl) {
+    this(null, ttl, true);
+  }
+
+  public TypedLruTTLCache(Integer capacity, Duration ttl) {
+    this(capacity, ttl, true);
+  }
+
+  public TypedLruTTLCache(Integer capacity, Duration ttl, boolean cacheNulls) {
+    this(capacity, ttl, cacheNulls, null, null, null, null, null, null, null, null, null, null);
+  }
+
+  /**
+   * @param timerWheelTick when set, expiration is tracked by a hierarchical timing wheel with
+   *                       this resolution and a background task on
+   *                       {@link ThreadPool#scheduled()} runs {@link #cleanUp()} every tick, so
+   *                       the expired entries are reclaimed and the buffered reads applied even
+   *                       if the cache isn't written anymore.
+   * @param ticker         time source of the expirations, {@link Ticker#system()} by default.
+   * @param evictionMode   how to choose the entry to evict when over capacity,
+   *                       {@link EvictionMode#LRU} by default.
+   * @param refreshAfter   when set, should be shorter than the TTL, a computeIfAbsent call which
+   *                       finds an entry older than it returns the current value right away and
+   *                       reloads it once in background, so hot keys don't block when expiring.
+   * @param executor       where the background work, like refreshes and removal
+   *                       notifications, runs, {@link ThreadPool#main()} by default.
+   * @param maximumWeight  when set, entries are also evicted while the sum of their weights,
+   *                       given by the weigher, is greater than it, the TinyLFU regions are
+   *                       still sized by the capacity, without it LRU is used.
+   * @param recordStats    when true, hits, misses, loads and removals are counted, see
+   *                       {@link #stats()}, off by default.
+   * @param removalListener told about every entry which leaves the cache, asynchronously on the
+   *                       executor, see {@link RemovalListener}.
+   * @param expiry         when set, chooses the TTL of each entry instead of the fixed one, also
+   *                       when it's read or updated, entries are then tracked by a timer wheel,
+   *                       ticking every {@link #DEFAULT_TIMER_WHEEL_TICK} unless timerWheelTick
+   *                       is set, without the background sweep in that case.
+   */
+  @Builder
+  private TypedLruTTLCache(
+      Integer capacity, Duration ttl, Boolean cacheNulls, Duration timerWheelTick, Ticker ticker,
+      EvictionMode evictionMode, Duration refreshAfter, Executor executor, Long maximumWeight,
+      Weigher<K, V> weigher, Boolean recordStats, RemovalListener<K, V> removalListener,
+      Expiry<K, V> expiry
+  ) {
+    if (maximumWeight != null && weigher == null) {
+      throw new IllegalArgumentException("a weigher is required when maximumWeight is set");
+    }
+    this.capacity = capacity;
+    this.maximumWeight = maximumWeight;
+    this.weigher = maximumWeight == null ? null : weigher;
+    this.inFlight = new SingleFlight<>();
+    this.store = new ConcurrentHashMap<>();
+    this.ttl = ttl;
+    this.cacheNulls = Objects.firstNonNull(cacheNulls, true);
+    this.evictionLock = new ReentrantLock();
+    this.evictionPolicy = EvictionPolicy.of(
+        Objects.firstNonNull(evictionMode, EvictionMode.LRU), capacity
+    );
+    this.readBuffer = new ReadBuffer();
+    this.ticker = Objects.useItOrDefault(ticker, Ticker::system);
+    this.refreshAfter = refreshAfter;
+    this.refreshing = ConcurrentHashMap.newKeySet();
+    this.executor = Objects.useItOrDefault(executor, ThreadPool::main);
+    this.stats = Objects.firstNonNull(recordStats, false)
+        ? StatsCounter.concurrent()
+        : StatsCounter.disabled();
+    this.notifier = removalListener == null
+        ? null
+        : new RemovalNotifier<>(removalListener, this.executor);
+    this.expiry = expiry;
+    if (timerWheelTick == null && expiry != null) {
+      this.expirations = new TimerWheel(DEFAULT_TIMER_WHEEL_TICK, this.ticker.read());
+    } else if (timerWheelTick == null) {
+      this.expirations = new ExpirationBuckets();
+    } else {
+      this.expirations = new TimerWheel(timerWheelTick, this.ticker.read());
+      Sweeper.schedule(this, timerWheelTick);
+    }
+  }
+
+  @Override
+  public boolean containsKey(K key) {
+    return this.getIfPresent(key) != null;
+  }
+
+  @Override
+  public V get(K k) {
+    return this.get(k, null);
+  }
+
+  @Override
+  public V get(K k, V def) {
+    final Wrapper w = this.getIfPresent(k);
+    if (w == null) {
+      this.stats.recordMisses(1);
+      return def;
+    }
+    this.stats.recordHits(1);
+    return (V) w.getValue();
+  }
+
+  @Override
+  public Map<K, V> getAll(Collection<? extends K> keys) {
+    final Map<K, V> found = new LinkedHashMap<>();
+    for (final K key : keys) {
+      final Wrapper w = this.getIfPresent(key);
+      if (w != null) {
+        found.put(key, (V) w.getValue());
+      }
+    }
+    this.stats.recordHits(found.size());
+    this.stats.recordMisses(keys.size() - found.size());
+    return found;
+  }
+
+  @Override
+  public void put(K key, V value) {
+    this.put(key, value, this.ttlOf(key, value, this.ticker.read()));
+  }
+
+  /**
+   * Writes the entry with its own TTL, ignoring the expiry. The expiration structures are
+   * ordered by deadline, so writing many distinct TTLs costs the same as sharing one.
+   */
+  public void put(K key, V value, Duration ttl) {
+    if (!this.canCacheValue(value)) {
+      this.remove(key);
+      return;
+    }
+    final Wrapper w = Wrapper.of(key, value, ttl, this.ticker.read());
+    this.afterWrite(this.store.put(key, w), w);
+  }
+
+  /**
+   * Index maintenance and eviction run once for the whole batch.
+   */
+  @Override
+  public void putAll(Map<? extends K, ? extends V> entries) {
+    final long now = this.ticker.read();
+    final List<Wrapper> replaced = new ArrayList<>(entries.size());
+    final List<Wrapper> written = new ArrayList<>(entries.size());
+    entries.forEach((key, value) -> {
+      if (this.canCacheValue(value)) {
+        final Wrapper w = Wrapper.of(key, value, this.ttlOf(key, value, now), now);
+        replaced.add(this.store.put(key, w));
+        written.add(w);
+      } else {
+        replaced.add(this.store.remove(key));
+        written.add(null);
+      }
+    });
+    this.afterWrites(replaced, written);
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+    return this.computeIfAbsentWithTTL(key, k -> {
+      final V v = mappingFunction.apply(k);
+      if (v == null && !this.cacheNulls) {
+        return null;
+      }
+      return Pair.of(v, this.ttlOfNew(k, v));
+    });
+  }
+
+  /**
+   * The missing keys are loaded in a single call and written as one batch, concurrent calls
+   * missing the same keys may load them more than once.
+   */
+  @Override
+  public Map<K, V> computeAllIfAbsent(
+      Collection<? extends K> keys,
+      Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> mappingFunction
+  ) {
+    final Map<K, V> found = this.getAll(keys);
+    final Set<K> missing = new LinkedHashSet<>(keys);
+    missing.removeAll(found.keySet());
+    if (missing.isEmpty()) {
+      return found;
+    }
+    final Map<? extends K, ? extends V> loaded = this.timed(() -> mappingFunction.apply(missing));
+    final Map<K, V> result = new LinkedHashMap<>();
+    final Map<K, V> toCache = new LinkedHashMap<>();
+    for (final K key : keys) {
+      if (found.containsKey(key)) {
+        result.put(key, found.get(key));
+      } else if (loaded != null && loaded.containsKey(key)) {
+        final V v = loaded.get(key);
+        toCache.put(key, v);
+        result.put(key, v);
+      }
+    }
+    this.putAll(toCache);
+    return result;
+  }
+
+  @Override
+  public void remove(K key) {
+    final Wrapper w = this.store.remove(key);
+    if (w != null) {
+      this.removed(w, RemovalCause.EXPLICIT);
+      this.afterRemove(w);
+    }
+  }
+
+  /**
+   * Removes the key only if it's still mapped to this exact value instance.
+   */
+  public boolean remove(K key, Object value) {
+    final Wrapper w = this.store.get(key);
+    if (w == null || w.getValue() != value || !this.store.remove(key, w)) {
+      return false;
+    }
+    this.removed(w, RemovalCause.EXPLICIT);
+    this.afterRemove(w);
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    this.evictionLock.lock();
+    try {
+      this.store
+          .values()
+          .forEach(w -> {
+            w.setWeight(0);
+            this.removed(w, RemovalCause.EXPLICIT);
+          });
+      this.store.clear();
+      this.evictionPolicy.clear();
+      this.expirations.clear();
+      this.weightedSize = 0;
+    } finally {
+      this.evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Concurrent callers for the same key wait for a single computation, other keys never wait
+   * for it, the eviction work runs after the waiters are released.
+   */
+  public V computeIfAbsentWithTTL(
+      K key, Function<? super K, ? extends Pair<V, Duration>> mappingFunction
+  ) {
+
+    final Wrapper cached = this.getIfPresent(key);
+    if (cached != null) {
+      this.stats.recordHits(1);
+      this.refreshIfNeeded(cached, mappingFunction);
+      return (V) cached.getValue();
+    }
+    this.stats.recordMisses(1);
+
+    final Wrapper[] replaced = new Wrapper[1];
+    final boolean[] loaded = new boolean[1];
+    final Wrapper w = this.inFlight.execute(key, () -> {
+
+      final Wrapper current = this.store.get(key);
+      final long now = this.ticker.read();
+      if (current != null && !current.hasExpired(now)) {
+        return current;
+      }
+
+      loaded[0] = true;
+      final Wrapper nw = this.load(key, mappingFunction, now);
+      if (nw != null) {
+        replaced[0] = this.store.put(key, nw);
+      } else if (current != null && this.store.remove(key, current)) {
+        replaced[0] = current;
+      }
+      return nw;
+
+    });
+    if (loaded[0]) {
+      this.afterWrite(replaced[0], w);
+    }
+    return w == null ? null : (V) w.getValue();
+  }
+
+  /**
+   * Applies the buffered reads to the eviction policy and reclaims the expired entries, skipped
+   * when another thread is already doing eviction work, it never blocks readers.
+   */
+  public void cleanUp() {
+    if (!this.evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      this.drainReadBuffer();
+      this.removeExpired();
+    } finally {
+      this.evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Writes the entries to the file, from the next to be evicted to the last, with their
+   * remaining TTLs and, on {@link EvictionMode#TINY_LFU}, how often they were used, so
+   * {@link #restore(Path)} rebuilds the eviction order. The entries are collected while holding
+   * the eviction lock and serialized by {@link Serializer#java()} after releasing it.
+   *
+   * @see SnapshotFile
+   */
+  public void snapshot(Path file) {
+    this.snapshot(file, Serializer.java(), Serializer.java());
+  }
+
+  public void snapshot(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+    final List<Wrapper> entries = new ArrayList<>(this.getSize());
+    final int[] frequencies;
+    final long now = this.ticker.read();
+    this.evictionLock.lock();
+    try {
+      this.drainReadBuffer();
+      this.evictionPolicy.forEach(w -> {
+        if (!w.hasExpired(now) && this.store.get(w.getKey()) == w) {
+          entries.add(w);
+        }
+      });
+      frequencies = entries
+          .stream()
+          .mapToInt(this.evictionPolicy::frequency)
+          .toArray();
+    } finally {
+      this.evictionLock.unlock();
+    }
+    SnapshotFile.write(
+        file, entries, frequencies, now,
+        (Serializer<Object>) keySerializer, (Serializer<Object>) valueSerializer
+    );
+  }
+
+  /**
+   * Loads a file written by {@link #snapshot(Path)}, skipping the entries which expired while it
+   * was on disk, the others keep their remaining TTL and replace the current entries of the same
+   * keys. The values are deserialized in parallel, then linked as one batch.
+   *
+   * @return how many entries were restored.
+   */
+  public int restore(Path file) {
+    return this.restore(file, Serializer.java(), Serializer.java());
+  }
+
+  public int restore(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+    final SnapshotFile.Restored restored = SnapshotFile.read(
+        file, (Serializer<Object>) keySerializer, (Serializer<Object>) valueSerializer,
+        this.ticker.read()
+    );
+    int count = 0;
+    final List<Wrapper> evicted;
+    this.evictionLock.lock();
+    try {
+      this.drainReadBuffer();
+      for (int i = 0; i < restored.getEntries().length; i++) {
+        final Wrapper w = restored.getEntries()[i];
+        if (w == null || !this.canCacheValue(w.getValue())) {
+          continue;
+        }
+        this.relink(this.store.put((K) w.getKey(), w), w);
+        this.evictionPolicy.recordFrequency(w, restored.getFrequencies()[i]);
+        count++;
+      }
+      evicted = this.checkSizeAndExpiration();
+    } finally {
+      this.evictionLock.unlock();
+    }
+    this.afterEviction(evicted);
+    return count;
+  }
+
+  /**
+   * What was counted since the cache was created, always empty unless it was built with
+   * recordStats.
+   *
+   * @see com.mageddo.commons.caching.stats.CacheStatsJmx
+   */
+  public CacheStats stats() {
+    return this.stats.snapshot();
+  }
+
+  public Integer getCapacity() {
+    return capacity;
+  }
+
+  public int getSize() {
+    return this.store.size();
+  }
+
+  public Long getMaximumWeight() {
+    return maximumWeight;
+  }
+
+  /**
+   * Sum of the entries weights, tracked as they are written and evicted.
+   */
+  public long getWeightedSize() {
+    this.evictionLock.lock();
+    try {
+      return this.weightedSize;
+    } finally {
+      this.evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Writes an already built entry, keeping its expiration, unless the key is mapped to an entry
+   * which didn't expire.
+   *
+   * @return the entry mapped to the key after the call.
+   */
+  Wrapper putIfAbsent(Wrapper w) {
+    final K key = (K) w.getKey();
+    while (true) {
+      final Wrapper current = this.store.putIfAbsent(key, w);
+      if (current == null) {
+        this.afterWrite(null, w);
+        return w;
+      }
+      if (!current.hasExpired(this.ticker.read())) {
+        return current;
+      }
+      if (this.store.replace(key, current, w)) {
+        this.afterWrite(current, w);
+        return w;
+      }
+    }
+  }
+
+  /**
+   * @param evictionHook called with the entries evicted by size, by the thread which evicted
+   *                     them, after releasing the eviction lock, must be set before the cache
+   *                     is shared.
+   */
+  void onEviction(Consumer<Wrapper> evictionHook) {
+    this.evictionHook = evictionHook;
+  }
+
+  /**
+   * @param evictingHook called with every entry evicted by size while still holding the eviction
+   *                     lock, right after it left the store, so it must be cheap, must be set
+   *                     before the cache is shared.
+   */
+  void onEvicting(Consumer<Wrapper> evictingHook) {
+    this.evictingHook = evictingHook;
+  }
+
+  boolean canCacheValue(Object v) {
+    return this.cacheNulls || v != null;
+  }
+
+  private Wrapper load(
+      K key, Function<? super K, ? extends Pair<V, Duration>> mappingFunction, long now
+  ) {
+    final Pair<V, Duration> nv = this.timed(() -> mappingFunction.apply(key));
+    if (nv == null) {
+      if (this.cacheNulls) {
+        return Wrapper.of(key, null, this.ttlOfNew(key, null), now);
+      }
+      return null;
+    }
+    return Wrapper.of(key, nv.getKey(), nv.getValue(), now);
+  }
+
+  /**
+   * TTL of the value being written for the key, the expiry tells if the key is cached.
+   */
+  private Duration ttlOf(K key, V value, long now) {
+    if (this.expiry == null) {
+      return this.ttl;
+    }
+    final Wrapper current = this.store.get(key);
+    if (current == null || current.hasExpired(now)) {
+      return this.expiry.expireAfterCreate(key, value);
+    }
+    return this.expiry.expireAfterUpdate(key, value, current.remaining(now));
+  }
+
+  private Duration ttlOfNew(K key, V value) {
+    return this.expiry == null ? this.ttl : this.expiry.expireAfterCreate(key, value);
+  }
+
+  private <T> T timed(Supplier<T> loader) {
+    final long start = System.nanoTime();
+    try {
+      final T loaded = loader.get();
+      this.stats.recordLoadSuccess(System.nanoTime() - start);
+      return loaded;
+    } catch (RuntimeException | Error e) {
+      this.stats.recordLoadFailure(System.nanoTime() - start);
+      throw e;
+    }
+  }
+
+  /**
+   * Reloads the entry in background when it's older than {@link #refreshAfter}, only one reload
+   * per key runs at a time and the new value only replaces the entry if it wasn't changed
+   * meanwhile, on failure, or when the executor rejects it, the current value is kept until it
+   * expires.
+   */
+  private void refreshIfNeeded(
+      Wrapper w, Function<? super K, ? extends Pair<V, Duration>> mappingFunction
+  ) {
+    final K key = (K) w.getKey();
+    if (this.refreshAfter == null
+        || !w.isOlderThan(this.refreshAfter, this.ticker.read())
+        || !this.refreshing.add(key)) {
+      return;
+    }
+    try {
+      this.executor.execute(() -> {
+        try {
+          final Wrapper nw = this.load(key, mappingFunction, this.ticker.read());
+          if (nw != null) {
+            if (this.store.replace(key, w, nw)) {
+              this.afterWrite(w, nw);
+            }
+          } else if (this.store.remove(key, w)) {
+            this.removed(w, RemovalCause.EXPLICIT);
+            this.afterRemove(w);
+          }
+        } catch (Throwable e) {
+          log.warn("status=refreshFailed, key={}, msg={}", key, e.getMessage(), e);
+        } finally {
+          this.refreshing.remove(key);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      this.refreshing.remove(key);
+      log.warn("status=refreshRejected, key={}, msg={}", key, e.getMessage());
+    }
+  }
+
+  /**
+   * Single lookup read, an entry found expired is treated as absent and only removed if it's
+   * still the mapped one, so a concurrent reload is never discarded.
+   */
+  Wrapper getIfPresent(K key) {
+    final Wrapper w = this.store.get(key);
+    if (w == null) {
+      return null;
+    }
+    final long now = this.ticker.read();
+    if (w.hasExpired(now)) {
+      if (this.store.remove(key, w)) {
+        this.removed(w, RemovalCause.EXPIRED);
+        this.afterRemove(w);
+      }
+      return null;
+    }
+    if (this.expiry != null) {
+      w.expireAfter(this.expiry.expireAfterRead(key, (V) w.getValue(), w.remaining(now)), now);
+    }
+    return this.afterRead(w);
+  }
+
+  /**
+   * Records the access on the read buffer, when the thread stripe gets full whoever wins the
+   * eviction lock drains it in batch, the others just go on, so readers never wait.
+   */
+  private Wrapper afterRead(Wrapper w) {
+    if (this.readBuffer.offer(w) && this.evictionLock.tryLock()) {
+      try {
+        this.drainReadBuffer();
+      } finally {
+        this.evictionLock.unlock();
+      }
+    }
+    return w;
+  }
+
+  private void drainReadBuffer() {
+    this.readBuffer.drainTo(this.evictionPolicy::access);
+  }
+
+  private void afterWrite(Wrapper old, Wrapper w) {
+    if (w == old) {
+      return;
+    }
+    final List<Wrapper> evicted;
+    this.evictionLock.lock();
+    try {
+      this.drainReadBuffer();
+      this.relink(old, w);
+      evicted = this.checkSizeAndExpiration();
+    } finally {
+      this.evictionLock.unlock();
+    }
+    this.afterEviction(evicted);
+  }
+
+  private void afterWrites(List<Wrapper> replaced, List<Wrapper> written) {
+    if (written.isEmpty()) {
+      return;
+    }
+    final List<Wrapper> evicted;
+    this.evictionLock.lock();
+    try {
+      this.drainReadBuffer();
+      for (int i = 0; i < written.size(); i++) {
+        this.relink(replaced.get(i), written.get(i));
+      }
+      evicted = this.checkSizeAndExpiration();
+    } finally {
+      this.evictionLock.unlock();
+    }
+    this.afterEviction(evicted);
+  }
+
+  /**
+   * The written entry is only linked while it's still the mapped one, a concurrent write of the
+   * same key may have replaced it before its eviction work ran, it must not be linked nor
+   * weighed then.
+   */
+  private void relink(Wrapper old, Wrapper w) {
+    if (w == old) {
+      return;
+    }
+    if (old != null) {
+      this.unlink(old);
+      if (old.hasExpired(this.ticker.read())) {
+        this.removed(old, RemovalCause.EXPIRED);
+      } else {
+        this.removed(old, w == null ? RemovalCause.EXPLICIT : RemovalCause.REPLACED);
+      }
+    }
+    if (w != null && this.store.get(w.getKey()) == w) {
+      this.evictionPolicy.add(w);
+      this.expirations.add(w);
+      if (this.weigher != null) {
+        w.setWeight(this.weigher.weigh((K) w.getKey(), (V) w.getValue()));
+        this.weightedSize += w.getWeight();
+      }
+    }
+  }
+
+  /**
+   * Called once per entry which left the store, by whoever removed it from there.
+   */
+  private void removed(Wrapper w, RemovalCause cause) {
+    this.stats.recordRemoval(cause, 1);
+    if (this.notifier != null) {
+      this.notifier.notify(w.getKey(), w.getValue(), cause);
+    }
+  }
+
+  private void afterRemove(Wrapper w) {
+    this.evictionLock.lock();
+    try {
+      this.unlink(w);
+    } finally {
+      this.evictionLock.unlock();
+    }
+  }
+
+  /**
+   * @return the entries evicted by size, to be passed to the eviction hook once the eviction
+   * lock is released.
+   */
+  private List<Wrapper> checkSizeAndExpiration() {
+    this.removeExpired();
+    return this.removeLeastUsed();
+  }
+
+  private void removeExpired() {
+    this.expirations.expire(this.ticker.read(), w -> {
+      this.evictionPolicy.remove(w);
+      this.discountWeight(w);
+      if (this.store.remove(w.getKey(), w)) {
+        this.removed(w, RemovalCause.EXPIRED);
+      }
+    });
+  }
+
+  private List<Wrapper> removeLeastUsed() {
+    List<Wrapper> evicted = Collections.emptyList();
+    while (this.isOverCapacity()) {
+      final Wrapper w = this.evictionPolicy.victim();
+      if (w == null) {
+        break;
+      }
+      this.unlink(w);
+      if (this.store.remove(w.getKey(), w)) {
+        this.removed(w, RemovalCause.SIZE);
+        if (this.evictingHook != null) {
+          this.evictingHook.accept(w);
+        }
+        if (this.evictionHook != null) {
+          if (evicted.isEmpty()) {
+            evicted = new ArrayList<>();
+          }
+          evicted.add(w);
+        }
+      }
+    }
+    return evicted;
+  }
+
+  /**
+   * Runs the eviction hook without holding the eviction lock, so its work doesn't stall the
+   * other writers.
+   */
+  private void afterEviction(List<Wrapper> evicted) {
+    for (final Wrapper w : evicted) {
+      this.evictionHook.accept(w);
+    }
+  }
+
+  private boolean isOverCapacity() {
+    return (this.capacity != null && this.getSize() > this.capacity)
+        || (this.maximumWeight != null && this.weightedSize > this.maximumWeight);
+  }
+
+  private void unlink(Wrapper w) {
+    this.evictionPolicy.remove(w);
+    this.expirations.remove(w);
+    this.discountWeight(w);
+  }
+
+  private void discountWeight(Wrapper w) {
+    this.weightedSize -= w.getWeight();
+    w.setWeight(0);
+  }
+
+  public boolean isFull() {
+    return this.getSize() >= this.getCapacity();
+  }
+
+  public Map<K, Wrapper> asMap() {
+    return Collections.unmodifiableMap(this.store);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.store.isEmpty();
+  }
+
+  /**
+   * Only weakly references the cache, so it can be garbage collected, the task cancels itself
+   * after that.
+   */
+  static class Sweeper implements Runnable {
+
+    private final WeakReference<TypedLruTTLCache<?, ?>> cache;
+    private volatile ScheduledFuture<?> future;
+
+    Sweeper(TypedLruTTLCache<?, ?> cache) {
+      this.cache = new WeakReference<>(cache);
+    }
+
+    static void schedule(TypedLruTTLCache<?, ?> cache, Duration tick) {
+      final Sweeper sweeper = new Sweeper(cache);
+      final long millis = Math.max(1, tick.toMillis());
+      sweeper.future = ThreadPool
+          .scheduled()
+          .scheduleWithFixedDelay(sweeper, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run() {
+      final TypedLruTTLCache<?, ?> cache = this.cache.get();
+      if (cache != null) {
+        cache.cleanUp();
+      } else if (this.future != null) {
+        this.future.cancel(false);
+      }
+    }
+  }
+}
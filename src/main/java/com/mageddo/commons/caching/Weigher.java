@@ -0,0 +1,11 @@
+package com.mageddo.commons.caching;
+
+/**
+ * Tells how much of the cache maximum weight an entry takes, like its approximated size in
+ * bytes. It's called while the cache does eviction work, so it should be cheap.
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+  int weigh(K key, V value);
+}
@@ -0,0 +1,27 @@
+package com.mageddo.commons.caching.internal;
+
+/**
+ * Entries ordered from the least to the most recently used.
+ */
+public class AccessOrderDeque extends LinkedDeque {
+
+  @Override
+  Wrapper getPrevious(Wrapper w) {
+    return w.previousInAccessOrder;
+  }
+
+  @Override
+  void setPrevious(Wrapper w, Wrapper previous) {
+    w.previousInAccessOrder = previous;
+  }
+
+  @Override
+  Wrapper getNext(Wrapper w) {
+    return w.nextInAccessOrder;
+  }
+
+  @Override
+  void setNext(Wrapper w, Wrapper next) {
+    w.nextInAccessOrder = next;
+  }
+}
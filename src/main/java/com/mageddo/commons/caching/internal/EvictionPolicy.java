@@ -0,0 +1,52 @@
+package com.mageddo.commons.caching.internal;
+
+import java.util.function.Consumer;
+
+import com.mageddo.commons.caching.EvictionMode;
+
+/**
+ * Decides which entry leaves the cache when it's over capacity, implementations aren't thread
+ * safe, the owner cache must call them while holding its eviction lock.
+ */
+public interface EvictionPolicy {
+
+  void add(Wrapper w);
+
+  void access(Wrapper w);
+
+  void remove(Wrapper w);
+
+  /**
+   * The entry which should be evicted next, it's not removed, the cache must call
+   * {@link #remove(Wrapper)} after evicting it.
+   */
+  Wrapper victim();
+
+  void clear();
+
+  /**
+   * Visits the entries from the next victims to the last ones to be evicted, so adding them on
+   * this order rebuilds it.
+   */
+  void forEach(Consumer<Wrapper> consumer);
+
+  /**
+   * @return how often the entry was used recently, when the policy tracks it.
+   */
+  default int frequency(Wrapper w) {
+    return 0;
+  }
+
+  /**
+   * Makes the policy consider the entry used at least this often, like when restoring it.
+   */
+  default void recordFrequency(Wrapper w, int frequency) {
+  }
+
+  static EvictionPolicy of(EvictionMode mode, Integer capacity) {
+    if (mode == EvictionMode.TINY_LFU && capacity != null) {
+      return new TinyLfuPolicy(capacity);
+    }
+    return new LruPolicy();
+  }
+}
@@ -0,0 +1,101 @@
+package com.mageddo.commons.caching.internal;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Groups the entries by deadline slots of {@link #DEFAULT_RESOLUTION}, ordered by time, so
+ * adding and removing are O(log slots) whatever the TTLs are and expiring only visits the slots
+ * which are due. Every slot is a FIFO, the slots already passed are expired entirely and the
+ * current one only while its heads are expired, so an entry may be reclaimed up to a slot late,
+ * reads still see it expired on time. Entries whose expiration is moved after being added must
+ * be removed before, as they are found by their deadline, use {@link TimerWheel} for them.
+ * Not thread safe.
+ */
+public class ExpirationBuckets implements ExpirationQueue {
+
+  public static final Duration DEFAULT_RESOLUTION = Duration.ofMillis(1);
+
+  private final long resolution;
+  private final NavigableMap<Long, WriteOrderDeque> buckets = new TreeMap<>();
+
+  public ExpirationBuckets() {
+    this(DEFAULT_RESOLUTION);
+  }
+
+  public ExpirationBuckets(Duration resolution) {
+    this.resolution = Math.max(1, resolution.toNanos());
+  }
+
+  @Override
+  public void add(Wrapper w) {
+    this.buckets
+        .computeIfAbsent(this.slotOf(w.getExpiresAt()), slot -> new WriteOrderDeque())
+        .addLast(w);
+  }
+
+  @Override
+  public void remove(Wrapper w) {
+    final long slot = this.slotOf(w.getExpiresAt());
+    final WriteOrderDeque bucket = this.buckets.get(slot);
+    if (bucket != null && bucket.remove(w) && bucket.isEmpty()) {
+      this.buckets.remove(slot);
+    }
+  }
+
+  @Override
+  public void expire(long now, Consumer<Wrapper> onExpired) {
+    final long currentSlot = this.slotOf(now);
+    Map.Entry<Long, WriteOrderDeque> head = this.buckets.firstEntry();
+    while (head != null && head.getKey() <= currentSlot) {
+      final WriteOrderDeque bucket = head.getValue();
+      if (head.getKey() < currentSlot) {
+        this.buckets.pollFirstEntry();
+        this.expireAll(bucket, now, onExpired);
+      } else {
+        Wrapper w = bucket.peekFirst();
+        while (w != null && w.hasExpired(now)) {
+          bucket.remove(w);
+          onExpired.accept(w);
+          w = bucket.peekFirst();
+        }
+        if (!bucket.isEmpty()) {
+          return;
+        }
+        this.buckets.remove(head.getKey());
+      }
+      head = this.buckets.firstEntry();
+    }
+  }
+
+  @Override
+  public void clear() {
+    this.buckets
+        .values()
+        .forEach(WriteOrderDeque::clear);
+    this.buckets.clear();
+  }
+
+  /**
+   * Every entry of a passed slot is due, the ones which aren't are put back by their deadline.
+   */
+  void expireAll(WriteOrderDeque bucket, long now, Consumer<Wrapper> onExpired) {
+    Wrapper w = bucket.peekFirst();
+    while (w != null) {
+      bucket.remove(w);
+      if (w.hasExpired(now)) {
+        onExpired.accept(w);
+      } else {
+        this.add(w);
+      }
+      w = bucket.peekFirst();
+    }
+  }
+
+  long slotOf(long deadline) {
+    return Math.floorDiv(deadline, this.resolution);
+  }
+}
@@ -0,0 +1,21 @@
+package com.mageddo.commons.caching.internal;
+
+import java.util.function.Consumer;
+
+/**
+ * Keeps track of when the entries expire, implementations aren't thread safe, the owner cache
+ * must call them while holding its eviction lock.
+ */
+public interface ExpirationQueue {
+
+  void add(Wrapper w);
+
+  void remove(Wrapper w);
+
+  /**
+   * Unlinks every expired entry and pass it to the consumer.
+   */
+  void expire(long now, Consumer<Wrapper> onExpired);
+
+  void clear();
+}
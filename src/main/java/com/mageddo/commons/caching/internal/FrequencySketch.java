@@ -0,0 +1,101 @@
+package com.mageddo.commons.caching.internal;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch with 4 bit counters, estimates how many times a key was used recently. Every
+ * long of the table holds 16 counters and each key is counted on 4 of them, the estimation is
+ * the smaller one. After {@code 10 * capacity} increments every counter is halved, so the
+ * history ages and keys which were popular long ago lose their priority. Not thread safe.
+ */
+public class FrequencySketch {
+
+  static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+  static final long RESET_MASK = 0x7777777777777777L;
+  static final long ONE_MASK = 0x1111111111111111L;
+  static final int MAX_FREQUENCY = 15;
+
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int size;
+
+  public FrequencySketch(int capacity) {
+    final int length = ceilingPowerOfTwo(Math.max(capacity, 16));
+    this.table = new long[length];
+    this.tableMask = length - 1;
+    this.sampleSize = (int) Math.min(10L * Math.max(capacity, 1), Integer.MAX_VALUE);
+  }
+
+  public int frequency(Object key) {
+    final int hash = spread(key.hashCode());
+    final int start = (hash & 3) << 2;
+    int frequency = MAX_FREQUENCY;
+    for (int i = 0; i < 4; i++) {
+      final int index = this.indexOf(hash, i);
+      final int count = (int) ((this.table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  public void increment(Object key) {
+    final int hash = spread(key.hashCode());
+    final int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= this.incrementAt(this.indexOf(hash, i), start + i);
+    }
+    if (added && ++this.size == this.sampleSize) {
+      this.reset();
+    }
+  }
+
+  public void clear() {
+    Arrays.fill(this.table, 0L);
+    this.size = 0;
+  }
+
+  boolean incrementAt(int i, int counter) {
+    final int offset = counter << 2;
+    final long mask = 0xfL << offset;
+    if ((this.table[i] & mask) != mask) {
+      this.table[i] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Halves every counter, the odd ones lose their remainder, which is discounted from the size.
+   */
+  void reset() {
+    int odds = 0;
+    for (int i = 0; i < this.table.length; i++) {
+      odds += Long.bitCount(this.table[i] & ONE_MASK);
+      this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+    }
+    this.size = (this.size - (odds >>> 2)) >>> 1;
+  }
+
+  int indexOf(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return ((int) h) & this.tableMask;
+  }
+
+  static int spread(int x) {
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+
+  static int ceilingPowerOfTwo(int x) {
+    if (x >= 1 << 30) {
+      return 1 << 30;
+    }
+    return 1 << -Integer.numberOfLeadingZeros(x - 1);
+  }
+}
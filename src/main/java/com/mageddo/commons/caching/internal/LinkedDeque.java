@@ -0,0 +1,106 @@
+package com.mageddo.commons.caching.internal;
+
+import java.util.function.Consumer;
+
+/**
+ * Doubly linked list which stores the links on the {@link Wrapper} itself, so linking, unlinking
+ * and reordering are O(1) and don't allocate. Not thread safe.
+ */
+abstract class LinkedDeque {
+
+  private Wrapper first;
+  private Wrapper last;
+  private int size;
+
+  abstract Wrapper getPrevious(Wrapper w);
+
+  abstract void setPrevious(Wrapper w, Wrapper previous);
+
+  abstract Wrapper getNext(Wrapper w);
+
+  abstract void setNext(Wrapper w, Wrapper next);
+
+  public boolean isEmpty() {
+    return this.first == null;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public Wrapper peekFirst() {
+    return this.first;
+  }
+
+  public Wrapper peekLast() {
+    return this.last;
+  }
+
+  public boolean contains(Wrapper w) {
+    return this.getPrevious(w) != null
+        || this.getNext(w) != null
+        || w == this.first;
+  }
+
+  public void addLast(Wrapper w) {
+    final Wrapper l = this.last;
+    this.last = w;
+    if (l == null) {
+      this.first = w;
+    } else {
+      this.setNext(l, w);
+      this.setPrevious(w, l);
+    }
+    this.size++;
+  }
+
+  public boolean remove(Wrapper w) {
+    if (!this.contains(w)) {
+      return false;
+    }
+    final Wrapper prev = this.getPrevious(w);
+    final Wrapper next = this.getNext(w);
+    if (prev == null) {
+      this.first = next;
+    } else {
+      this.setNext(prev, next);
+      this.setPrevious(w, null);
+    }
+    if (next == null) {
+      this.last = prev;
+    } else {
+      this.setPrevious(next, prev);
+      this.setNext(w, null);
+    }
+    this.size--;
+    return true;
+  }
+
+  public void moveToBack(Wrapper w) {
+    if (w != this.last && this.remove(w)) {
+      this.addLast(w);
+    }
+  }
+
+  /**
+   * From the first to the last, the consumer must not change the deque.
+   */
+  public void forEach(Consumer<Wrapper> consumer) {
+    for (Wrapper w = this.first; w != null; w = this.getNext(w)) {
+      consumer.accept(w);
+    }
+  }
+
+  public void clear() {
+    Wrapper w = this.first;
+    while (w != null) {
+      final Wrapper next = this.getNext(w);
+      this.setPrevious(w, null);
+      this.setNext(w, null);
+      w = next;
+    }
+    this.first = null;
+    this.last = null;
+    this.size = 0;
+  }
+}
@@ -0,0 +1,295 @@
+package com.mageddo.commons.caching.internal;
+
+import java.util.Arrays;
+
+/**
+ * LRU and TTL bounded map from primitive longs to values, made of parallel arrays, so lookups
+ * don't allocate and entries cost no node objects. Entries live on dense arrays indexed by an
+ * entry id, the open addressing slots table maps the keys to them by linear probing with
+ * backward shift removals, the access and write orders are doubly linked lists of entry ids.
+ * Every entry has the same TTL, so the write order is also the expiration order. The arrays
+ * grow on demand until the capacity. Not thread safe.
+ */
+public class LongTable {
+
+  public static final int ABSENT = -1;
+
+  static final int NONE = -1;
+
+  private final int capacity;
+
+  private long[] keys;
+  private Object[] values;
+  private long[] expiresAt;
+  private int[] previousInAccessOrder;
+  private int[] nextInAccessOrder;
+  private int[] previousInWriteOrder;
+  private int[] nextInWriteOrder;
+
+  /**
+   * Entry id + 1, zero when empty.
+   */
+  private int[] slots;
+  private int slotMask;
+
+  private int headInAccessOrder = NONE;
+  private int tailInAccessOrder = NONE;
+  private int headInWriteOrder = NONE;
+  private int tailInWriteOrder = NONE;
+
+  /**
+   * Removed ids, linked by {@link #nextInAccessOrder}.
+   */
+  private int freeHead = NONE;
+  private int used;
+  private int size;
+
+  public LongTable(int capacity) {
+    this.capacity = Math.max(1, capacity);
+    this.allocate(Math.min(this.capacity, 16));
+  }
+
+  /**
+   * @return the entry id or {@link #ABSENT} when the key is missing or expired, the expired
+   * ones are removed, found entries become the most recently used.
+   */
+  public int get(long key, long now) {
+    final int id = this.find(key);
+    if (id == ABSENT) {
+      return ABSENT;
+    }
+    if (now > this.expiresAt[id]) {
+      this.remove(id);
+      return ABSENT;
+    }
+    this.moveToBackInAccessOrder(id);
+    return id;
+  }
+
+  public Object valueOf(int id) {
+    return this.values[id];
+  }
+
+  /**
+   * When full, the expired entries are removed, then the least recently used ones.
+   */
+  public void put(long key, Object value, long expiresAt, long now) {
+    int id = this.find(key);
+    if (id != ABSENT) {
+      this.values[id] = value;
+      this.expiresAt[id] = expiresAt;
+      this.moveToBackInAccessOrder(id);
+      this.unlinkInWriteOrder(id);
+      this.linkLastInWriteOrder(id);
+      return;
+    }
+    if (this.size == this.capacity) {
+      this.removeExpired(now);
+      if (this.size == this.capacity) {
+        this.remove(this.headInAccessOrder);
+      }
+    }
+    id = this.newId();
+    this.keys[id] = key;
+    this.values[id] = value;
+    this.expiresAt[id] = expiresAt;
+    this.linkLastInAccessOrder(id);
+    this.linkLastInWriteOrder(id);
+    int slot = this.startOf(key);
+    while (this.slots[slot] != 0) {
+      slot = (slot + 1) & this.slotMask;
+    }
+    this.slots[slot] = id + 1;
+    this.size++;
+  }
+
+  public boolean remove(long key) {
+    final int id = this.find(key);
+    if (id == ABSENT) {
+      return false;
+    }
+    this.remove(id);
+    return true;
+  }
+
+  public void removeExpired(long now) {
+    while (this.headInWriteOrder != NONE && now > this.expiresAt[this.headInWriteOrder]) {
+      this.remove(this.headInWriteOrder);
+    }
+  }
+
+  public void clear() {
+    this.allocate(Math.min(this.capacity, 16));
+    this.headInAccessOrder = NONE;
+    this.tailInAccessOrder = NONE;
+    this.headInWriteOrder = NONE;
+    this.tailInWriteOrder = NONE;
+    this.freeHead = NONE;
+    this.used = 0;
+    this.size = 0;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  int find(long key) {
+    int slot = this.startOf(key);
+    while (this.slots[slot] != 0) {
+      final int id = this.slots[slot] - 1;
+      if (this.keys[id] == key) {
+        return id;
+      }
+      slot = (slot + 1) & this.slotMask;
+    }
+    return ABSENT;
+  }
+
+  void remove(int id) {
+    int slot = this.startOf(this.keys[id]);
+    while (this.slots[slot] != id + 1) {
+      slot = (slot + 1) & this.slotMask;
+    }
+    this.deleteSlot(slot);
+    this.unlinkInAccessOrder(id);
+    this.unlinkInWriteOrder(id);
+    this.values[id] = null;
+    this.nextInAccessOrder[id] = this.freeHead;
+    this.freeHead = id;
+    this.size--;
+  }
+
+  /**
+   * Moves back the following entries of the probe sequence which can take the freed slot.
+   */
+  void deleteSlot(int slot) {
+    int gap = slot;
+    int i = slot;
+    while (true) {
+      i = (i + 1) & this.slotMask;
+      if (this.slots[i] == 0) {
+        break;
+      }
+      final int start = this.startOf(this.keys[this.slots[i] - 1]);
+      if (((i - start) & this.slotMask) >= ((i - gap) & this.slotMask)) {
+        this.slots[gap] = this.slots[i];
+        gap = i;
+      }
+    }
+    this.slots[gap] = 0;
+  }
+
+  int newId() {
+    if (this.freeHead != NONE) {
+      final int id = this.freeHead;
+      this.freeHead = this.nextInAccessOrder[id];
+      return id;
+    }
+    if (this.used == this.keys.length) {
+      this.grow();
+    }
+    return this.used++;
+  }
+
+  void grow() {
+    final int length = (int) Math.min((long) this.keys.length * 2, this.capacity);
+    this.keys = Arrays.copyOf(this.keys, length);
+    this.values = Arrays.copyOf(this.values, length);
+    this.expiresAt = Arrays.copyOf(this.expiresAt, length);
+    this.previousInAccessOrder = Arrays.copyOf(this.previousInAccessOrder, length);
+    this.nextInAccessOrder = Arrays.copyOf(this.nextInAccessOrder, length);
+    this.previousInWriteOrder = Arrays.copyOf(this.previousInWriteOrder, length);
+    this.nextInWriteOrder = Arrays.copyOf(this.nextInWriteOrder, length);
+    this.slots = new int[slotsFor(length)];
+    this.slotMask = this.slots.length - 1;
+    for (int id = this.headInAccessOrder; id != NONE; id = this.nextInAccessOrder[id]) {
+      int slot = this.startOf(this.keys[id]);
+      while (this.slots[slot] != 0) {
+        slot = (slot + 1) & this.slotMask;
+      }
+      this.slots[slot] = id + 1;
+    }
+  }
+
+  void allocate(int length) {
+    this.keys = new long[length];
+    this.values = new Object[length];
+    this.expiresAt = new long[length];
+    this.previousInAccessOrder = new int[length];
+    this.nextInAccessOrder = new int[length];
+    this.previousInWriteOrder = new int[length];
+    this.nextInWriteOrder = new int[length];
+    this.slots = new int[slotsFor(length)];
+    this.slotMask = this.slots.length - 1;
+  }
+
+  void moveToBackInAccessOrder(int id) {
+    if (id != this.tailInAccessOrder) {
+      this.unlinkInAccessOrder(id);
+      this.linkLastInAccessOrder(id);
+    }
+  }
+
+  void linkLastInAccessOrder(int id) {
+    this.previousInAccessOrder[id] = this.tailInAccessOrder;
+    this.nextInAccessOrder[id] = NONE;
+    if (this.tailInAccessOrder == NONE) {
+      this.headInAccessOrder = id;
+    } else {
+      this.nextInAccessOrder[this.tailInAccessOrder] = id;
+    }
+    this.tailInAccessOrder = id;
+  }
+
+  void unlinkInAccessOrder(int id) {
+    final int previous = this.previousInAccessOrder[id];
+    final int next = this.nextInAccessOrder[id];
+    if (previous == NONE) {
+      this.headInAccessOrder = next;
+    } else {
+      this.nextInAccessOrder[previous] = next;
+    }
+    if (next == NONE) {
+      this.tailInAccessOrder = previous;
+    } else {
+      this.previousInAccessOrder[next] = previous;
+    }
+  }
+
+  void linkLastInWriteOrder(int id) {
+    this.previousInWriteOrder[id] = this.tailInWriteOrder;
+    this.nextInWriteOrder[id] = NONE;
+    if (this.tailInWriteOrder == NONE) {
+      this.headInWriteOrder = id;
+    } else {
+      this.nextInWriteOrder[this.tailInWriteOrder] = id;
+    }
+    this.tailInWriteOrder = id;
+  }
+
+  void unlinkInWriteOrder(int id) {
+    final int previous = this.previousInWriteOrder[id];
+    final int next = this.nextInWriteOrder[id];
+    if (previous == NONE) {
+      this.headInWriteOrder = next;
+    } else {
+      this.nextInWriteOrder[previous] = next;
+    }
+    if (next == NONE) {
+      this.tailInWriteOrder = previous;
+    } else {
+      this.previousInWriteOrder[next] = previous;
+    }
+  }
+
+  int startOf(long key) {
+    return FrequencySketch.spread(Long.hashCode(key)) & this.slotMask;
+  }
+
+  /**
+   * At most half full, so the probe sequences stay short.
+   */
+  static int slotsFor(int entries) {
+    return FrequencySketch.ceilingPowerOfTwo(Math.max(2, entries * 2));
+  }
+}
@@ -0,0 +1,41 @@
+package com.mageddo.commons.caching.internal;
+
+import java.util.function.Consumer;
+
+/**
+ * Evicts the least recently used entry.
+ */
+public class LruPolicy implements EvictionPolicy {
+
+  private final AccessOrderDeque accessOrder = new AccessOrderDeque();
+
+  @Override
+  public void add(Wrapper w) {
+    this.accessOrder.addLast(w);
+  }
+
+  @Override
+  public void access(Wrapper w) {
+    this.accessOrder.moveToBack(w);
+  }
+
+  @Override
+  public void remove(Wrapper w) {
+    this.accessOrder.remove(w);
+  }
+
+  @Override
+  public Wrapper victim() {
+    return this.accessOrder.peekFirst();
+  }
+
+  @Override
+  public void clear() {
+    this.accessOrder.clear();
+  }
+
+  @Override
+  public void forEach(Consumer<Wrapper> consumer) {
+    this.accessOrder.forEach(consumer);
+  }
+}
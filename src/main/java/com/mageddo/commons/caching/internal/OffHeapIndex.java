@@ -0,0 +1,160 @@
+package com.mageddo.commons.caching.internal;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Open addressing hash table from the keys hashes to the off heap addresses of their records,
+ * kept on two primitive arrays, so it costs the garbage collector nothing no matter how many
+ * entries there are. Collisions are resolved by linear probing and the callers tell when the
+ * record at an address has the wanted key. Removals shift the following entries back, so there
+ * are no tombstones. Not thread safe.
+ */
+public class OffHeapIndex {
+
+  public static final long EMPTY = -1L;
+
+  private int[] hashes;
+  private long[] addresses;
+  private int mask;
+  private int size;
+
+  public OffHeapIndex(int expectedSize) {
+    this.allocate(FrequencySketch.ceilingPowerOfTwo(Math.max(16, expectedSize * 4 / 3 + 1)));
+  }
+
+  /**
+   * @return the address of the record matching the key or {@link #EMPTY}.
+   */
+  public long find(int hash, LongPredicate matches) {
+    final int slot = this.slotOf(hash, matches);
+    return slot < 0 ? EMPTY : this.addresses[slot];
+  }
+
+  /**
+   * @return the previous address of the same key or {@link #EMPTY}.
+   */
+  public long put(int hash, long address, LongPredicate sameKey) {
+    final int slot = this.slotOf(hash, sameKey);
+    if (slot >= 0) {
+      final long previous = this.addresses[slot];
+      this.addresses[slot] = address;
+      return previous;
+    }
+    if ((this.size + 1) * 4L > this.addresses.length * 3L) {
+      this.resize();
+    }
+    int i = this.startOf(hash);
+    while (this.addresses[i] != EMPTY) {
+      i = (i + 1) & this.mask;
+    }
+    this.hashes[i] = hash;
+    this.addresses[i] = address;
+    this.size++;
+    return EMPTY;
+  }
+
+  /**
+   * @return the removed address or {@link #EMPTY}.
+   */
+  public long remove(int hash, LongPredicate matches) {
+    final int slot = this.slotOf(hash, matches);
+    if (slot < 0) {
+      return EMPTY;
+    }
+    final long address = this.addresses[slot];
+    this.deleteAt(slot);
+    return address;
+  }
+
+  /**
+   * Removes the exact address, used when the record itself is being discarded.
+   */
+  public boolean remove(int hash, long address) {
+    return this.remove(hash, it -> it == address) != EMPTY;
+  }
+
+  /**
+   * @return a copy of the indexed addresses.
+   */
+  public long[] addresses() {
+    final long[] copy = new long[this.size];
+    int n = 0;
+    for (final long address : this.addresses) {
+      if (address != EMPTY) {
+        copy[n++] = address;
+      }
+    }
+    return copy;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public void clear() {
+    Arrays.fill(this.addresses, EMPTY);
+    this.size = 0;
+  }
+
+  int slotOf(int hash, LongPredicate matches) {
+    int i = this.startOf(hash);
+    while (this.addresses[i] != EMPTY) {
+      if (this.hashes[i] == hash && matches.test(this.addresses[i])) {
+        return i;
+      }
+      i = (i + 1) & this.mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Moves back the following entries of the probe sequence which can take the freed slot, so
+   * lookups never stop early on it.
+   */
+  void deleteAt(int slot) {
+    int gap = slot;
+    int i = slot;
+    while (true) {
+      i = (i + 1) & this.mask;
+      if (this.addresses[i] == EMPTY) {
+        break;
+      }
+      final int start = this.startOf(this.hashes[i]);
+      if (((i - start) & this.mask) >= ((i - gap) & this.mask)) {
+        this.hashes[gap] = this.hashes[i];
+        this.addresses[gap] = this.addresses[i];
+        gap = i;
+      }
+    }
+    this.addresses[gap] = EMPTY;
+    this.size--;
+  }
+
+  int startOf(int hash) {
+    return FrequencySketch.spread(hash) & this.mask;
+  }
+
+  void resize() {
+    final int[] oldHashes = this.hashes;
+    final long[] oldAddresses = this.addresses;
+    this.allocate(oldAddresses.length * 2);
+    for (int i = 0; i < oldAddresses.length; i++) {
+      if (oldAddresses[i] != EMPTY) {
+        int j = this.startOf(oldHashes[i]);
+        while (this.addresses[j] != EMPTY) {
+          j = (j + 1) & this.mask;
+        }
+        this.hashes[j] = oldHashes[i];
+        this.addresses[j] = oldAddresses[i];
+      }
+    }
+  }
+
+  void allocate(int length) {
+    this.hashes = new int[length];
+    this.addresses = new long[length];
+    Arrays.fill(this.addresses, EMPTY);
+    this.mask = length - 1;
+  }
+}
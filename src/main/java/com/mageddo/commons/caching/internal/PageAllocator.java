@@ -0,0 +1,132 @@
+package com.mageddo.commons.caching.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+import com.mageddo.commons.io.IoUtils;
+
+/**
+ * Hands out fixed size pages of memory out of the heap, either direct buffers or regions of a
+ * memory mapped file, until the maximum is reached. Released pages are kept to be handed out
+ * again, the memory is only given back to the system when the pages are garbage collected.
+ * Owners may {@link #reserve(int)} pages, the reserved pages are only handed out to their
+ * reserved allocations, so an owner which arrives late always gets its share. Thread safe.
+ */
+public class PageAllocator implements Closeable {
+
+  private final int pageSize;
+  private final int maxPages;
+  private final FileChannel channel;
+  private final ArrayDeque<ByteBuffer> released;
+  private int allocated;
+  private int reserved;
+
+  PageAllocator(long maximumBytes, int pageSize, FileChannel channel) {
+    this.pageSize = pageSize;
+    this.maxPages = (int) Math.max(1, Math.min(maximumBytes / pageSize, Integer.MAX_VALUE));
+    this.channel = channel;
+    this.released = new ArrayDeque<>();
+  }
+
+  public static PageAllocator direct(long maximumBytes, int pageSize) {
+    return new PageAllocator(maximumBytes, pageSize, null);
+  }
+
+  /**
+   * The file is created when missing and grows as the pages are allocated, its previous content
+   * is ignored.
+   */
+  public static PageAllocator mapped(Path file, long maximumBytes, int pageSize) {
+    try {
+      return new PageAllocator(maximumBytes, pageSize, FileChannel.open(
+          file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+      ));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Keeps pages for the allocations made with reserved set, up to the free pages.
+   */
+  public synchronized void reserve(int pages) {
+    this.reserved = Math.min(this.reserved + pages, this.available());
+  }
+
+  /**
+   * @return a page or null when the maximum was reached.
+   */
+  public ByteBuffer allocate() {
+    return this.allocate(false);
+  }
+
+  /**
+   * @param reserved when true the page is taken from the reserved ones, otherwise only the pages
+   *                 which aren't reserved can be handed out.
+   * @return a page or null when there is no page left for the allocation.
+   */
+  public synchronized ByteBuffer allocate(boolean reserved) {
+    if (reserved && this.reserved > 0) {
+      this.reserved--;
+    } else if (this.available() <= this.reserved) {
+      return null;
+    }
+    if (!this.released.isEmpty()) {
+      return this.released.pop();
+    }
+    if (this.allocated == this.maxPages) {
+      return null;
+    }
+    final ByteBuffer page;
+    if (this.channel == null) {
+      page = ByteBuffer.allocateDirect(this.pageSize);
+    } else {
+      try {
+        page = this.channel.map(
+            FileChannel.MapMode.READ_WRITE, (long) this.allocated * this.pageSize, this.pageSize
+        );
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    this.allocated++;
+    return page;
+  }
+
+  public void release(ByteBuffer page) {
+    this.release(page, false);
+  }
+
+  /**
+   * @param reserved when true the page is reserved again for its owner.
+   */
+  public synchronized void release(ByteBuffer page, boolean reserved) {
+    this.released.push(page);
+    if (reserved) {
+      this.reserved++;
+    }
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public int getMaxPages() {
+    return maxPages;
+  }
+
+  int available() {
+    return this.maxPages - this.allocated + this.released.size();
+  }
+
+  @Override
+  public void close() {
+    IoUtils.silentClose(this.channel);
+  }
+}
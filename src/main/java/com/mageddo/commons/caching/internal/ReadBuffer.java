@@ -0,0 +1,84 @@
+package com.mageddo.commons.caching.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Striped, lossy ring buffers where readers record the accessed entries, so they don't need the
+ * eviction lock. Each thread is hashed to a stripe, when it's full or another reader won the
+ * race the access is just dropped, the eviction policy only needs an approximated order. There
+ * must be a single consumer at a time draining it, the owner cache does it while holding its
+ * eviction lock.
+ */
+public class ReadBuffer {
+
+  static final int STRIPES = FrequencySketch.ceilingPowerOfTwo(Runtime
+      .getRuntime()
+      .availableProcessors() * 4);
+  static final int STRIPE_SIZE = 16;
+  static final int STRIPE_MASK = STRIPE_SIZE - 1;
+
+  private final Stripe[] stripes;
+
+  public ReadBuffer() {
+    this.stripes = new Stripe[STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      this.stripes[i] = new Stripe();
+    }
+  }
+
+  /**
+   * @return true when the stripe is full and should be drained.
+   */
+  public boolean offer(Wrapper w) {
+    final Stripe stripe = this.stripes[stripeIndex()];
+    final long head = stripe.head.get();
+    final long tail = stripe.tail.get();
+    final long size = tail - head;
+    if (size >= STRIPE_SIZE) {
+      return true;
+    }
+    if (stripe.tail.compareAndSet(tail, tail + 1)) {
+      stripe.buffer.lazySet((int) (tail & STRIPE_MASK), w);
+      return size + 1 >= STRIPE_SIZE;
+    }
+    return false;
+  }
+
+  public void drainTo(Consumer<Wrapper> consumer) {
+    for (final Stripe stripe : this.stripes) {
+      stripe.drainTo(consumer);
+    }
+  }
+
+  static int stripeIndex() {
+    final long id = Thread
+        .currentThread()
+        .getId();
+    return FrequencySketch.spread((int) (id ^ (id >>> 32))) & (STRIPES - 1);
+  }
+
+  static class Stripe {
+
+    final AtomicLong head = new AtomicLong();
+    final AtomicLong tail = new AtomicLong();
+    final AtomicReferenceArray<Wrapper> buffer = new AtomicReferenceArray<>(STRIPE_SIZE);
+
+    void drainTo(Consumer<Wrapper> consumer) {
+      long head = this.head.get();
+      final long tail = this.tail.get();
+      while (head != tail) {
+        final int index = (int) (head & STRIPE_MASK);
+        final Wrapper w = this.buffer.get(index);
+        if (w == null) { // the reader claimed the slot but didn't publish it yet
+          break;
+        }
+        this.buffer.lazySet(index, null);
+        consumer.accept(w);
+        head++;
+      }
+      this.head.lazySet(head);
+    }
+  }
+}
@@ -0,0 +1,458 @@
+package com.mageddo.commons.caching.internal;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * Keeps serialized entries on pages out of the heap, memcached style. Each page is carved in
+ * chunks of a single size class, from 64 bytes growing by 25% until the page size, so a record
+ * takes the smallest chunk it fits and a freed chunk is reused as is. Pages are taken from the
+ * {@link PageAllocator} on demand, when it's exhausted the size class evicts one of its own
+ * entries by the clock algorithm, a second chance LRU: reads set the entry referenced bit and
+ * the clock hand clears it, evicting the first expired or not referenced entry it finds. A size
+ * class without pages takes one from the class with most pages. The first pages of the store
+ * come from the ones it reserved on the allocator, so stores sharing an allocator can always
+ * hold some entries, however the others filled it.
+ *
+ * <p>Records are laid out as: flags (byte), key hash (int), expires at (long), key length (int),
+ * value length (int, -1 for null), key bytes, value bytes. Addresses are the page id on the high
+ * 32 bits and the offset on the low ones. Not thread safe.</p>
+ */
+public class SlabStore {
+
+  /**
+   * Returned by {@link #valueOf(long)} when a null value was stored.
+   */
+  public static final byte[] NULL_VALUE = new byte[0];
+
+  static final int MIN_CHUNK = 64;
+  static final double GROWTH_FACTOR = 1.25;
+
+  static final int FLAGS = 0;
+  static final int HASH = 1;
+  static final int EXPIRES_AT = 5;
+  static final int KEY_LENGTH = 13;
+  static final int VALUE_LENGTH = 17;
+  static final int HEADER = 21;
+
+  static final byte USED = 1;
+  static final byte REFERENCED = 2;
+
+  private final PageAllocator allocator;
+  private final int reservedPages;
+  private final int pageSize;
+  private final SizeClass[] classes;
+  private final List<ByteBuffer> pages;
+  private final List<SizeClass> pageOwners;
+  private final OffHeapIndex index;
+
+  public SlabStore(PageAllocator allocator) {
+    this(allocator, 0);
+  }
+
+  /**
+   * @param reservedPages pages reserved on the allocator for this store.
+   */
+  public SlabStore(PageAllocator allocator, int reservedPages) {
+    allocator.reserve(reservedPages);
+    this.allocator = allocator;
+    this.reservedPages = reservedPages;
+    this.pageSize = allocator.getPageSize();
+    final int[] sizes = chunkSizes(this.pageSize);
+    this.classes = new SizeClass[sizes.length];
+    for (int i = 0; i < sizes.length; i++) {
+      this.classes[i] = new SizeClass(sizes[i], this.pageSize / sizes[i]);
+    }
+    this.pages = new ArrayList<>();
+    this.pageOwners = new ArrayList<>();
+    this.index = new OffHeapIndex(16);
+  }
+
+  /**
+   * @return the address of the key record or {@link OffHeapIndex#EMPTY} when absent or expired,
+   * the expired ones are removed.
+   */
+  public long find(byte[] key, int hash, long now) {
+    final long address = this.lookup(key, hash, now);
+    if (address != OffHeapIndex.EMPTY) {
+      final ByteBuffer page = this.pageOf(address);
+      final int offset = offsetOf(address);
+      page.put(offset + FLAGS, (byte) (page.get(offset + FLAGS) | REFERENCED));
+    }
+    return address;
+  }
+
+  /**
+   * Only checks the index and the expiration, the entry isn't marked as referenced nor its value
+   * copied, the expired one is removed.
+   */
+  public boolean contains(byte[] key, int hash, long now) {
+    return this.lookup(key, hash, now) != OffHeapIndex.EMPTY;
+  }
+
+  long lookup(byte[] key, int hash, long now) {
+    final long address = this.index.find(hash, it -> this.keyEquals(it, key));
+    if (address == OffHeapIndex.EMPTY) {
+      return address;
+    }
+    if (now > this.expiresAtOf(address)) {
+      this.discard(address);
+      return OffHeapIndex.EMPTY;
+    }
+    return address;
+  }
+
+  /**
+   * @return a copy of the stored value, {@link #NULL_VALUE} when it's null.
+   */
+  public byte[] valueOf(long address) {
+    final ByteBuffer page = this.pageOf(address);
+    final int offset = offsetOf(address);
+    final int valueLength = page.getInt(offset + VALUE_LENGTH);
+    if (valueLength < 0) {
+      return NULL_VALUE;
+    }
+    final byte[] value = new byte[valueLength];
+    read(page, offset + HEADER + page.getInt(offset + KEY_LENGTH), value);
+    return value;
+  }
+
+  public byte[] keyOf(long address) {
+    final ByteBuffer page = this.pageOf(address);
+    final int offset = offsetOf(address);
+    final byte[] key = new byte[page.getInt(offset + KEY_LENGTH)];
+    read(page, offset + HEADER, key);
+    return key;
+  }
+
+  public long expiresAtOf(long address) {
+    return this.pageOf(address)
+        .getLong(offsetOf(address) + EXPIRES_AT);
+  }
+
+  /**
+   * @param value null to store a null value.
+   * @return false when the record doesn't fit on a page or no memory could be taken for it, the
+   * previous value of the key is removed anyway.
+   */
+  public boolean put(byte[] key, int hash, byte[] value, long expiresAt, long now) {
+    final int size = HEADER + key.length + (value == null ? 0 : value.length);
+    final long address = this.allocate(size, now);
+    if (address == OffHeapIndex.EMPTY) {
+      this.remove(key, hash);
+      return false;
+    }
+    final ByteBuffer page = this.pageOf(address);
+    final int offset = offsetOf(address);
+    page.put(offset + FLAGS, USED);
+    page.putInt(offset + HASH, hash);
+    page.putLong(offset + EXPIRES_AT, expiresAt);
+    page.putInt(offset + KEY_LENGTH, key.length);
+    page.putInt(offset + VALUE_LENGTH, value == null ? -1 : value.length);
+    write(page, offset + HEADER, key);
+    if (value != null) {
+      write(page, offset + HEADER + key.length, value);
+    }
+    final long previous = this.index.put(hash, address, it -> this.keyEquals(it, key));
+    if (previous != OffHeapIndex.EMPTY) {
+      this.free(previous);
+    }
+    return true;
+  }
+
+  public boolean remove(byte[] key, int hash) {
+    final long address = this.index.remove(hash, it -> this.keyEquals(it, key));
+    if (address == OffHeapIndex.EMPTY) {
+      return false;
+    }
+    this.free(address);
+    return true;
+  }
+
+  public void removeExpired(long now) {
+    for (final long address : this.index.addresses()) {
+      if (now > this.expiresAtOf(address)) {
+        this.discard(address);
+      }
+    }
+  }
+
+  /**
+   * @return the addresses of the stored records, expired ones included.
+   */
+  public long[] addresses() {
+    return this.index.addresses();
+  }
+
+  /**
+   * Gives all the pages back to the allocator.
+   */
+  public void clear() {
+    for (int i = 0; i < this.pages.size(); i++) {
+      this.allocator.release(this.pages.get(i), i < this.reservedPages);
+    }
+    this.pages.clear();
+    this.pageOwners.clear();
+    for (final SizeClass sizeClass : this.classes) {
+      sizeClass.clear();
+    }
+    this.index.clear();
+  }
+
+  public int size() {
+    return this.index.size();
+  }
+
+  long allocate(int size, long now) {
+    final SizeClass sizeClass = this.classFor(size);
+    if (sizeClass == null) {
+      return OffHeapIndex.EMPTY;
+    }
+    if (sizeClass.freeCount > 0) {
+      return sizeClass.free[--sizeClass.freeCount];
+    }
+    if (sizeClass.pageCount > 0 && sizeClass.bump + sizeClass.chunkSize <= this.pageSize) {
+      final long address = addressOf(sizeClass.lastPage(), sizeClass.bump);
+      sizeClass.bump += sizeClass.chunkSize;
+      return address;
+    }
+    final ByteBuffer page = this.allocator.allocate(this.pages.size() < this.reservedPages);
+    if (page != null) {
+      this.pages.add(page);
+      this.pageOwners.add(sizeClass);
+      return this.assign(this.pages.size() - 1, sizeClass);
+    }
+    if (sizeClass.pageCount == 0) {
+      return this.steal(sizeClass);
+    }
+    return this.evict(sizeClass, now);
+  }
+
+  /**
+   * Second chance over the size class chunks, after a full turn every reference bit is cleared,
+   * so it always finds a victim.
+   */
+  long evict(SizeClass sizeClass, long now) {
+    while (true) {
+      final long address = sizeClass.advanceHand();
+      final ByteBuffer page = this.pageOf(address);
+      final int offset = offsetOf(address);
+      final byte flags = page.get(offset + FLAGS);
+      if ((flags & USED) == 0) {
+        return address;
+      }
+      if ((flags & REFERENCED) == 0 || now > page.getLong(offset + EXPIRES_AT)) {
+        this.index.remove(page.getInt(offset + HASH), address);
+        page.put(offset + FLAGS, (byte) 0);
+        return address;
+      }
+      page.put(offset + FLAGS, (byte) (flags & ~REFERENCED));
+    }
+  }
+
+  /**
+   * Evicts every entry of a page of the class with most pages and hands it to the given one.
+   */
+  long steal(SizeClass sizeClass) {
+    SizeClass donor = null;
+    for (final SizeClass it : this.classes) {
+      if (it.pageCount > 0 && (donor == null || it.pageCount > donor.pageCount)) {
+        donor = it;
+      }
+    }
+    if (donor == null) {
+      return OffHeapIndex.EMPTY;
+    }
+    final int pageId = donor.firstPage();
+    final ByteBuffer page = this.pages.get(pageId);
+    final int carved = donor.pageCount == 1 ? donor.bump : donor.chunksPerPage * donor.chunkSize;
+    for (int offset = 0; offset + donor.chunkSize <= carved; offset += donor.chunkSize) {
+      if ((page.get(offset + FLAGS) & USED) != 0) {
+        this.index.remove(page.getInt(offset + HASH), addressOf(pageId, offset));
+        page.put(offset + FLAGS, (byte) 0);
+      }
+    }
+    donor.removeFirstPage();
+    this.pageOwners.set(pageId, sizeClass);
+    return this.assign(pageId, sizeClass);
+  }
+
+  long assign(int pageId, SizeClass sizeClass) {
+    sizeClass.addPage(pageId);
+    sizeClass.bump = sizeClass.chunkSize;
+    return addressOf(pageId, 0);
+  }
+
+  void discard(long address) {
+    this.index.remove(this.pageOf(address)
+        .getInt(offsetOf(address) + HASH), address);
+    this.free(address);
+  }
+
+  void free(long address) {
+    this.pageOf(address)
+        .put(offsetOf(address) + FLAGS, (byte) 0);
+    this.pageOwners.get(pageIdOf(address))
+        .push(address);
+  }
+
+  boolean keyEquals(long address, byte[] key) {
+    final ByteBuffer page = this.pageOf(address);
+    final int offset = offsetOf(address);
+    if (page.getInt(offset + KEY_LENGTH) != key.length) {
+      return false;
+    }
+    for (int i = 0; i < key.length; i++) {
+      if (page.get(offset + HEADER + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  SizeClass classFor(int size) {
+    for (final SizeClass sizeClass : this.classes) {
+      if (size <= sizeClass.chunkSize) {
+        return sizeClass;
+      }
+    }
+    return null;
+  }
+
+  ByteBuffer pageOf(long address) {
+    return this.pages.get(pageIdOf(address));
+  }
+
+  static long addressOf(int pageId, int offset) {
+    return ((long) pageId << 32) | offset;
+  }
+
+  static int pageIdOf(long address) {
+    return (int) (address >>> 32);
+  }
+
+  static int offsetOf(long address) {
+    return (int) address;
+  }
+
+  /**
+   * Positions are set through {@link Buffer}, so the code runs on Java 8 when built by newer
+   * compilers.
+   */
+  static void read(ByteBuffer page, int offset, byte[] dst) {
+    final ByteBuffer view = page.duplicate();
+    ((Buffer) view).position(offset);
+    view.get(dst);
+  }
+
+  static void write(ByteBuffer page, int offset, byte[] src) {
+    final ByteBuffer view = page.duplicate();
+    ((Buffer) view).position(offset);
+    view.put(src);
+  }
+
+  static int[] chunkSizes(int pageSize) {
+    final List<Integer> sizes = new ArrayList<>();
+    int size = MIN_CHUNK;
+    while (size < pageSize) {
+      sizes.add(size);
+      size = (int) Math.min(((long) (size * GROWTH_FACTOR) + 7) & ~7L, pageSize);
+    }
+    sizes.add(pageSize);
+    return sizes
+        .stream()
+        .mapToInt(Integer::intValue)
+        .toArray();
+  }
+
+  static class SizeClass {
+
+    final int chunkSize;
+    final int chunksPerPage;
+    int[] pageIds = new int[4];
+    int pageCount;
+    long[] free = new long[16];
+    int freeCount;
+
+    /**
+     * Offset of the next never used chunk of the last page.
+     */
+    int bump;
+
+    int handPage;
+    int handChunk;
+
+    SizeClass(int chunkSize, int chunksPerPage) {
+      this.chunkSize = chunkSize;
+      this.chunksPerPage = chunksPerPage;
+    }
+
+    void addPage(int pageId) {
+      if (this.pageCount == this.pageIds.length) {
+        this.pageIds = Arrays.copyOf(this.pageIds, this.pageCount * 2);
+      }
+      this.pageIds[this.pageCount++] = pageId;
+    }
+
+    int firstPage() {
+      return this.pageIds[0];
+    }
+
+    int lastPage() {
+      return this.pageIds[this.pageCount - 1];
+    }
+
+    /**
+     * The free chunks of the removed page are dropped, the last page and its bump offset are
+     * kept unless it was the only one.
+     */
+    void removeFirstPage() {
+      final int pageId = this.pageIds[0];
+      System.arraycopy(this.pageIds, 1, this.pageIds, 0, --this.pageCount);
+      int n = 0;
+      for (int i = 0; i < this.freeCount; i++) {
+        if (pageIdOf(this.free[i]) != pageId) {
+          this.free[n++] = this.free[i];
+        }
+      }
+      this.freeCount = n;
+      if (this.pageCount == 0) {
+        this.bump = 0;
+      }
+      this.handPage = 0;
+      this.handChunk = 0;
+    }
+
+    void push(long address) {
+      if (this.freeCount == this.free.length) {
+        this.free = Arrays.copyOf(this.free, this.freeCount * 2);
+      }
+      this.free[this.freeCount++] = address;
+    }
+
+    long advanceHand() {
+      if (this.handPage >= this.pageCount) {
+        this.handPage = 0;
+        this.handChunk = 0;
+      }
+      final long address = addressOf(this.pageIds[this.handPage], this.handChunk * this.chunkSize);
+      if (++this.handChunk == this.chunksPerPage) {
+        this.handChunk = 0;
+        this.handPage++;
+      }
+      return address;
+    }
+
+    void clear() {
+      this.pageCount = 0;
+      this.freeCount = 0;
+      this.bump = 0;
+      this.handPage = 0;
+      this.handChunk = 0;
+    }
+  }
+}
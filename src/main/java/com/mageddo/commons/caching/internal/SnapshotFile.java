@@ -0,0 +1,184 @@
+package com.mageddo.commons.caching.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.mageddo.commons.caching.Serializer;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Binary snapshot of cache entries. After the header: magic (int), version (int), wall clock
+ * millis it was written at (long) and entries count (int), each entry is: key length (int), key
+ * bytes, TTL seconds (long) and nanos (int), age nanos (long), remaining nanos (long,
+ * {@link Long#MAX_VALUE} when it never expires), frequency (byte), value length (int, -1 for
+ * null) and value bytes, keys and values as given by their serializers. Ticker nanos aren't
+ * comparable across processes, so the times are relative to when it was written and the wall
+ * clock tells how long it was on disk.
+ */
+public class SnapshotFile {
+
+  static final int MAGIC = 0x4C525443;
+  static final int VERSION = 1;
+  static final int HEADER = 20;
+
+  private SnapshotFile() {
+  }
+
+  /**
+   * Writes to a temporary file which then replaces the given one, so a failure never leaves a
+   * partial snapshot behind, the temporary file is deleted when it fails.
+   */
+  public static void write(
+      Path file, List<Wrapper> entries, int[] frequencies, long now,
+      Serializer<Object> keySerializer, Serializer<Object> valueSerializer
+  ) {
+    final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try {
+      writeEntries(tmp, entries, frequencies, now, keySerializer, valueSerializer);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      deleteSilently(tmp);
+      throw new UncheckedIOException(e);
+    } catch (RuntimeException | Error e) {
+      deleteSilently(tmp);
+      throw e;
+    }
+  }
+
+  static void writeEntries(
+      Path tmp, List<Wrapper> entries, int[] frequencies, long now,
+      Serializer<Object> keySerializer, Serializer<Object> valueSerializer
+  ) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        Files.newOutputStream(tmp), 1 << 16
+    ))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(System.currentTimeMillis());
+      out.writeInt(entries.size());
+      for (int i = 0; i < entries.size(); i++) {
+        final Wrapper w = entries.get(i);
+        final byte[] key = keySerializer.serialize(w.getKey());
+        out.writeInt(key.length);
+        out.write(key);
+        out.writeLong(w.getTtl()
+            .getSeconds());
+        out.writeInt(w.getTtl()
+            .getNano());
+        out.writeLong(Math.max(0, now - w.getWrittenAt()));
+        final long remaining = w.getExpiresAt() - now;
+        out.writeLong(w.getExpiresAt() == Long.MAX_VALUE || remaining < 0
+            ? Long.MAX_VALUE
+            : remaining);
+        out.writeByte(frequencies[i]);
+        if (w.getValue() == null) {
+          out.writeInt(-1);
+        } else {
+          final byte[] value = valueSerializer.serialize(w.getValue());
+          out.writeInt(value.length);
+          out.write(value);
+        }
+      }
+    }
+  }
+
+  static void deleteSilently(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // the write failure is what matters
+    }
+  }
+
+  /**
+   * Maps the file and finds where each entry starts, then builds the entries in parallel, the
+   * values deserialization is the expensive part. Files bigger than 2GB aren't supported.
+   *
+   * @param now ticker nanos the restored expirations are relative to.
+   * @return the entries in the order they were written, the ones which expired while the
+   * snapshot was on disk are null.
+   */
+  public static Restored read(
+      Path file, Serializer<Object> keySerializer, Serializer<Object> valueSerializer, long now
+  ) {
+    final ByteBuffer buffer = map(file);
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+      throw new IllegalArgumentException("not a cache snapshot: " + file);
+    }
+    final long elapsed = Math.max(0, System.currentTimeMillis() - buffer.getLong(8)) * 1_000_000L;
+    final int count = buffer.getInt(16);
+    final int[] offsets = new int[count];
+    int offset = HEADER;
+    for (int i = 0; i < count; i++) {
+      offsets[i] = offset;
+      offset += 4 + buffer.getInt(offset) + 8 + 4 + 8 + 8 + 1;
+      final int valueLength = buffer.getInt(offset);
+      offset += 4 + Math.max(0, valueLength);
+    }
+    final Wrapper[] entries = new Wrapper[count];
+    final int[] frequencies = new int[count];
+    IntStream
+        .range(0, count)
+        .parallel()
+        .forEach(i -> {
+          final ByteBuffer view = buffer.duplicate();
+          ((Buffer) view).position(offsets[i]);
+          final byte[] key = new byte[view.getInt()];
+          view.get(key);
+          final Duration ttl = Duration.ofSeconds(view.getLong(), view.getInt());
+          final long age = view.getLong() + elapsed;
+          final long remaining = view.getLong();
+          frequencies[i] = view.get();
+          if (remaining != Long.MAX_VALUE && remaining - elapsed < 0) {
+            return;
+          }
+          final int valueLength = view.getInt();
+          Object value = null;
+          if (valueLength >= 0) {
+            final byte[] bytes = new byte[valueLength];
+            view.get(bytes);
+            value = valueSerializer.deserialize(bytes);
+          }
+          final long expiresAt = remaining == Long.MAX_VALUE
+              ? Long.MAX_VALUE
+              : Wrapper.plus(now, Duration.ofNanos(remaining - elapsed));
+          entries[i] = new Wrapper(
+              keySerializer.deserialize(key), value, now - age, expiresAt, ttl
+          );
+        });
+    return new Restored(entries, frequencies);
+  }
+
+  static ByteBuffer map(Path file) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("snapshots bigger than 2GB aren't supported: " + file);
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  public static class Restored {
+
+    private final Wrapper[] entries;
+    private final int[] frequencies;
+  }
+}
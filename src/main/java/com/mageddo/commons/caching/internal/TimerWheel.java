@@ -0,0 +1,140 @@
+package com.mageddo.commons.caching.internal;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel, every level has {@link #BUCKETS} buckets and each bucket of a level
+ * spans the whole previous level, entries are put on the lowest level which can hold their
+ * deadline and cascade to the lower levels as the time advances. Adding and removing are O(1)
+ * and expiring only visits the buckets whose time has passed, so its cost is proportional to
+ * the expired entries. Entries beyond the highest level are hashed into it and rescheduled when
+ * visited. Not thread safe.
+ *
+ * @see <a href="http://www.cs.columbia.edu/~nahum/w6998/papers/ton97-timing-wheels.pdf">
+ * Hashed and Hierarchical Timing Wheels</a>
+ */
+public class TimerWheel implements ExpirationQueue {
+
+  static final int BUCKETS = 64;
+  static final int LEVELS = 5;
+
+  private final long[] ticks;
+  private final Wrapper[][] wheel;
+  private long time;
+
+  public TimerWheel(Duration tick, long now) {
+    this.ticks = new long[LEVELS];
+    this.wheel = new Wrapper[LEVELS][BUCKETS];
+    long span = Math.max(1, tick.toNanos());
+    for (int level = 0; level < LEVELS; level++) {
+      this.ticks[level] = span;
+      span = span > Long.MAX_VALUE / BUCKETS ? Long.MAX_VALUE : span * BUCKETS;
+      for (int bucket = 0; bucket < BUCKETS; bucket++) {
+        final Wrapper sentinel = Wrapper.sentinel();
+        sentinel.previousInWriteOrder = sentinel;
+        sentinel.nextInWriteOrder = sentinel;
+        this.wheel[level][bucket] = sentinel;
+      }
+    }
+    this.time = now;
+  }
+
+  @Override
+  public void add(Wrapper w) {
+    this.schedule(w, w.getExpiresAt());
+  }
+
+  @Override
+  public void remove(Wrapper w) {
+    final Wrapper prev = w.previousInWriteOrder;
+    final Wrapper next = w.nextInWriteOrder;
+    if (prev == null) {
+      return;
+    }
+    prev.nextInWriteOrder = next;
+    next.previousInWriteOrder = prev;
+    w.previousInWriteOrder = null;
+    w.nextInWriteOrder = null;
+  }
+
+  @Override
+  public void expire(long now, Consumer<Wrapper> onExpired) {
+    final long previousTime = this.time;
+    final long currentTime = now;
+    if (currentTime <= previousTime) {
+      return;
+    }
+    this.time = currentTime;
+    for (int level = 0; level < LEVELS; level++) {
+      final long previousTicks = Math.floorDiv(previousTime, this.ticks[level]);
+      final long currentTicks = Math.floorDiv(currentTime, this.ticks[level]);
+      if (currentTicks == previousTicks) {
+        break;
+      }
+      this.expire(level, previousTicks, currentTicks, onExpired);
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (final Wrapper[] buckets : this.wheel) {
+      for (final Wrapper sentinel : buckets) {
+        Wrapper w = sentinel.nextInWriteOrder;
+        while (w != sentinel) {
+          final Wrapper next = w.nextInWriteOrder;
+          w.previousInWriteOrder = null;
+          w.nextInWriteOrder = null;
+          w = next;
+        }
+        sentinel.previousInWriteOrder = sentinel;
+        sentinel.nextInWriteOrder = sentinel;
+      }
+    }
+  }
+
+  /**
+   * Visits the buckets passed since the last call, the due entries are expired and the others
+   * rescheduled, what usually moves them to a lower level.
+   */
+  void expire(int level, long previousTicks, long currentTicks, Consumer<Wrapper> onExpired) {
+    final long visits = Math.min(currentTicks - previousTicks + 1, BUCKETS);
+    for (long i = 0; i < visits; i++) {
+      final Wrapper sentinel = this.wheel[level][(int) ((previousTicks + i) & (BUCKETS - 1))];
+      Wrapper w = sentinel.nextInWriteOrder;
+      sentinel.previousInWriteOrder = sentinel;
+      sentinel.nextInWriteOrder = sentinel;
+      while (w != sentinel) {
+        final Wrapper next = w.nextInWriteOrder;
+        w.previousInWriteOrder = null;
+        w.nextInWriteOrder = null;
+        final long deadline = w.getExpiresAt();
+        if (w.hasExpired(this.time)) {
+          onExpired.accept(w);
+        } else {
+          this.schedule(w, deadline);
+        }
+        w = next;
+      }
+    }
+  }
+
+  void schedule(Wrapper w, long deadline) {
+    long delay = deadline - this.time;
+    if (delay < 0) { // already due or overflowed because of a saturated deadline
+      delay = deadline > this.time ? Long.MAX_VALUE : 0;
+    }
+    int level = 0;
+    while (level < LEVELS - 1 && delay >= this.ticks[level + 1]) {
+      level++;
+    }
+    final long at = Math.max(deadline, this.time);
+    final long bucket = Math.floorDiv(at, this.ticks[level]) & (BUCKETS - 1);
+    final Wrapper sentinel = this.wheel[level][(int) bucket];
+    final Wrapper last = sentinel.previousInWriteOrder;
+    w.previousInWriteOrder = last;
+    w.nextInWriteOrder = sentinel;
+    last.nextInWriteOrder = w;
+    sentinel.previousInWriteOrder = w;
+  }
+}
@@ -0,0 +1,149 @@
+package com.mageddo.commons.caching.internal;
+
+import java.util.function.Consumer;
+
+/**
+ * W-TinyLFU, new entries start on a small LRU window (1% of the capacity), the entries leaving
+ * the window become candidates on the probation segment of the main region, when the cache is
+ * full the candidate only stays if the sketch says it's used more often than the probation
+ * least recently used entry. Probation entries used again are promoted to the protected segment
+ * (80% of the main region), so a scan of new keys can't flush the hot ones.
+ *
+ * @see com.mageddo.commons.caching.EvictionMode#TINY_LFU
+ */
+public class TinyLfuPolicy implements EvictionPolicy {
+
+  static final byte WINDOW = 0;
+  static final byte PROBATION = 1;
+  static final byte PROTECTED = 2;
+
+  private final AccessOrderDeque window;
+  private final AccessOrderDeque probation;
+  private final AccessOrderDeque protectedSegment;
+  private final FrequencySketch sketch;
+  private final int maxWindow;
+  private final int maxProtected;
+
+  public TinyLfuPolicy(int capacity) {
+    this.window = new AccessOrderDeque();
+    this.probation = new AccessOrderDeque();
+    this.protectedSegment = new AccessOrderDeque();
+    this.sketch = new FrequencySketch(capacity);
+    this.maxWindow = Math.max(1, capacity / 100);
+    this.maxProtected = (int) ((capacity - this.maxWindow) * 0.8);
+  }
+
+  @Override
+  public void add(Wrapper w) {
+    this.sketch.increment(w.getKey());
+    w.region = WINDOW;
+    this.window.addLast(w);
+    while (this.window.size() > this.maxWindow) {
+      final Wrapper candidate = this.window.peekFirst();
+      this.window.remove(candidate);
+      candidate.region = PROBATION;
+      this.probation.addLast(candidate);
+    }
+  }
+
+  @Override
+  public void access(Wrapper w) {
+    if (!this.regionOf(w).contains(w)) {
+      return;
+    }
+    this.sketch.increment(w.getKey());
+    switch (w.region) {
+      case WINDOW:
+        this.window.moveToBack(w);
+        break;
+      case PROBATION:
+        this.probation.remove(w);
+        w.region = PROTECTED;
+        this.protectedSegment.addLast(w);
+        this.demoteProtected();
+        break;
+      default:
+        this.protectedSegment.moveToBack(w);
+    }
+  }
+
+  @Override
+  public void remove(Wrapper w) {
+    this.regionOf(w).remove(w);
+  }
+
+  /**
+   * The probation least recently used entry competes with the newest candidate, the one the
+   * sketch considers less frequent loses.
+   */
+  @Override
+  public Wrapper victim() {
+    final Wrapper victim = this.probation.peekFirst();
+    if (victim == null) {
+      if (!this.protectedSegment.isEmpty()) {
+        return this.protectedSegment.peekFirst();
+      }
+      return this.window.peekFirst();
+    }
+    final Wrapper candidate = this.probation.peekLast();
+    if (candidate == victim) {
+      return victim;
+    }
+    if (this.sketch.frequency(candidate.getKey()) > this.sketch.frequency(victim.getKey())) {
+      return victim;
+    }
+    return candidate;
+  }
+
+  @Override
+  public void clear() {
+    this.window.clear();
+    this.probation.clear();
+    this.protectedSegment.clear();
+    this.sketch.clear();
+  }
+
+  /**
+   * Probation first, its entries are the candidates to eviction, then the window and the
+   * protected segment.
+   */
+  @Override
+  public void forEach(Consumer<Wrapper> consumer) {
+    this.probation.forEach(consumer);
+    this.window.forEach(consumer);
+    this.protectedSegment.forEach(consumer);
+  }
+
+  @Override
+  public int frequency(Wrapper w) {
+    return this.sketch.frequency(w.getKey());
+  }
+
+  @Override
+  public void recordFrequency(Wrapper w, int frequency) {
+    final int target = Math.min(frequency, FrequencySketch.MAX_FREQUENCY);
+    for (int i = this.sketch.frequency(w.getKey()); i < target; i++) {
+      this.sketch.increment(w.getKey());
+    }
+  }
+
+  void demoteProtected() {
+    while (this.protectedSegment.size() > this.maxProtected) {
+      final Wrapper demoted = this.protectedSegment.peekFirst();
+      this.protectedSegment.remove(demoted);
+      demoted.region = PROBATION;
+      this.probation.addLast(demoted);
+    }
+  }
+
+  AccessOrderDeque regionOf(Wrapper w) {
+    switch (w.region) {
+      case WINDOW:
+        return this.window;
+      case PROBATION:
+        return this.probation;
+      default:
+        return this.protectedSegment;
+    }
+  }
+}
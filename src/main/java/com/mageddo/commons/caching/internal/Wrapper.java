@@ -1,50 +1,117 @@
 package com.mageddo.commons.caching.internal;
 
 import java.time.Duration;
-import java.time.LocalDateTime;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.time.temporal.ChronoUnit;
 
 import lombok.Getter;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 
-@RequiredArgsConstructor
 public class Wrapper {
 
+  @Getter
+  private final Object key;
+
   @Getter
   private final Object value;
 
+  /**
+   * Ticker nanos when it was written.
+   */
+  @Getter
+  private final long writtenAt;
+
+  /**
+   * Ticker nanos when it expires, moved by {@link #expireAfter(Duration, long)}.
+   */
   @Getter
-  @NonNull
-  private final LocalDateTime expiresAt;
+  private volatile long expiresAt;
 
+  /**
+   * How long it was set to live when it was written.
+   */
   @Getter
-  @NonNull
   private final Duration ttl;
 
-  @NonNull
-  private final AtomicInteger accesses;
+  /**
+   * Weight accounted on the owner cache while the entry is linked, zero otherwise.
+   */
+  @Getter
+  @Setter
+  private int weight;
+
+  /**
+   * Intrusive links used by the eviction structures, they must only be touched while holding
+   * the owner cache eviction lock.
+   */
+  Wrapper previousInAccessOrder;
+  Wrapper nextInAccessOrder;
+  Wrapper previousInWriteOrder;
+  Wrapper nextInWriteOrder;
+
+  /**
+   * Which {@link TinyLfuPolicy} region the entry is on.
+   */
+  byte region;
+
+  public Wrapper(Object key, Object value, long writtenAt, long expiresAt, @NonNull Duration ttl) {
+    this.key = key;
+    this.value = value;
+    this.writtenAt = writtenAt;
+    this.expiresAt = expiresAt;
+    this.ttl = ttl;
+  }
+
+  public static Wrapper of(Object key, Object value, Duration ttl, long now) {
+    return new Wrapper(key, value, now, plus(now, ttl), ttl);
+  }
+
+  /**
+   * Head of the circular lists used by {@link TimerWheel} buckets.
+   */
+  static Wrapper sentinel() {
+    return new Wrapper(null, null, Long.MIN_VALUE, Long.MAX_VALUE, Duration.ZERO);
+  }
+
+  public boolean hasExpired(long now) {
+    return now > this.expiresAt;
+  }
 
-  public static Wrapper of(Object value, Duration ttl) {
-    final LocalDateTime willExpireAt = LocalDateTime
-        .now()
-        .plus(ttl);
-    return new Wrapper(value, willExpireAt, ttl, new AtomicInteger());
+  /**
+   * How long it still has to live, zero when expired.
+   */
+  public Duration remaining(long now) {
+    if (this.expiresAt == Long.MAX_VALUE) {
+      return ChronoUnit.FOREVER.getDuration();
+    }
+    return Duration.ofNanos(Math.max(0, this.expiresAt - now));
   }
 
-  public boolean hasExpired() {
-    return LocalDateTime
-        .now()
-        .isAfter(this.expiresAt)
-        ;
+  /**
+   * Changes when it expires without relinking it, the expiration structures find the new time
+   * when they visit it, so an earlier time is only honored by the reads until then.
+   */
+  public void expireAfter(Duration ttl, long now) {
+    this.expiresAt = plus(now, ttl);
   }
 
-  public Wrapper incrementAccess() {
-    this.accesses.incrementAndGet();
-    return this;
+  public boolean isOlderThan(Duration age, long now) {
+    return now - this.writtenAt >= age.toNanos();
   }
 
-  public int getAccesses() {
-    return this.accesses.get();
+  /**
+   * Deadline of a TTL starting now, saturates to {@link Long#MAX_VALUE} instead of overflowing,
+   * so huge TTLs never expire, a negative TTL is already expired.
+   */
+  public static long plus(long now, Duration ttl) {
+    if (ttl.getSeconds() >= Long.MAX_VALUE / 1_000_000_000L) {
+      return Long.MAX_VALUE;
+    }
+    final long nanos = ttl.toNanos();
+    final long expiresAt = now + nanos;
+    if (((now ^ expiresAt) & (nanos ^ expiresAt)) < 0) {
+      return nanos > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+    }
+    return expiresAt;
   }
 }
@@ -0,0 +1,27 @@
+package com.mageddo.commons.caching.internal;
+
+/**
+ * Entries ordered from the oldest to the newest written.
+ */
+public class WriteOrderDeque extends LinkedDeque {
+
+  @Override
+  Wrapper getPrevious(Wrapper w) {
+    return w.previousInWriteOrder;
+  }
+
+  @Override
+  void setPrevious(Wrapper w, Wrapper previous) {
+    w.previousInWriteOrder = previous;
+  }
+
+  @Override
+  Wrapper getNext(Wrapper w) {
+    return w.nextInWriteOrder;
+  }
+
+  @Override
+  void setNext(Wrapper w, Wrapper next) {
+    w.nextInWriteOrder = next;
+  }
+}
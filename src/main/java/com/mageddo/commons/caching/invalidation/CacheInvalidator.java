@@ -0,0 +1,225 @@
+package com.mageddo.commons.caching.invalidation;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.mageddo.commons.caching.Cache;
+import com.mageddo.commons.caching.MutableCache;
+import com.mageddo.commons.concurrent.ThreadPool;
+import com.mageddo.commons.lang.Objects;
+import com.mageddo.commons.lang.tuple.Pair;
+
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the caches of several nodes coherent, so they can use long TTLs. Invalidating a key
+ * removes it from the local cache right away and queues it, every flush interval the queued
+ * keys are published as batches to the other nodes, which remove them from their caches of the
+ * same name. The same key invalidated many times between two flushes is sent once.
+ *
+ * <p>Batches of each node are numbered, a duplicated or late one is ignored and, when one is
+ * lost, the receivers clear every registered cache, since they can't know what changed. Flushes
+ * with nothing queued publish a heartbeat with the last sequence, so a lost last batch is
+ * noticed within a flush interval.</p>
+ */
+@Slf4j
+public class CacheInvalidator implements Closeable {
+
+  public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(50);
+  public static final int DEFAULT_MAX_BATCH_SIZE = 512;
+
+  private final InvalidationTransport transport;
+  private final String nodeId;
+  private final long epoch;
+  private final int maxBatchSize;
+  private final Map<String, MutableCache> caches;
+  private final Set<Pair<String, String>> pending;
+  private final AtomicLong sequence;
+  private final Map<String, Received> received;
+  private final Consumer<InvalidationBatch> subscriber;
+  private final ScheduledFuture<?> flusher;
+
+  /**
+   * @param transport     required, it's not closed by {@link #close()}, so it can be shared.
+   * @param nodeId        identifies this node on the batches, a random UUID by default.
+   * @param flushInterval how long invalidations wait to be coalesced and published,
+   *                      {@link #DEFAULT_FLUSH_INTERVAL} by default.
+   * @param maxBatchSize  invalidations per published batch, {@link #DEFAULT_MAX_BATCH_SIZE} by
+   *                      default.
+   */
+  @Builder
+  private CacheInvalidator(
+      InvalidationTransport transport, String nodeId, Duration flushInterval, Integer maxBatchSize
+  ) {
+    if (transport == null) {
+      throw new IllegalArgumentException("transport is required");
+    }
+    this.transport = transport;
+    this.nodeId = Objects.useItOrDefault(nodeId, () -> UUID.randomUUID()
+        .toString());
+    this.epoch = ThreadLocalRandom.current()
+        .nextLong();
+    this.maxBatchSize = Objects.firstNonNull(maxBatchSize, DEFAULT_MAX_BATCH_SIZE);
+    this.caches = new ConcurrentHashMap<>();
+    this.pending = ConcurrentHashMap.newKeySet();
+    this.sequence = new AtomicLong();
+    this.received = new ConcurrentHashMap<>();
+    this.subscriber = this::onBatch;
+    this.transport.subscribe(this.subscriber);
+    final long millis = Math.max(1, Objects.firstNonNull(flushInterval, DEFAULT_FLUSH_INTERVAL)
+        .toMillis());
+    this.flusher = ThreadPool
+        .scheduled()
+        .scheduleWithFixedDelay(this::flushQuietly, millis, millis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @param name must be the same on every node for the same data.
+   */
+  public CacheInvalidator register(String name, MutableCache cache) {
+    this.caches.put(name, cache);
+    return this;
+  }
+
+  public void invalidate(String cache, String key) {
+    this.removeLocally(cache, key);
+    this.pending.add(Pair.of(cache, key));
+  }
+
+  /**
+   * Clears the cache on every node.
+   */
+  public void invalidateAll(String cache) {
+    this.invalidate(cache, null);
+  }
+
+  /**
+   * Publishes the queued invalidations now, or a heartbeat when there are none, it's also done
+   * every flush interval.
+   */
+  public synchronized void flush() {
+    final Iterator<Pair<String, String>> it = this.pending.iterator();
+    List<Invalidation> batch = new ArrayList<>();
+    boolean published = false;
+    while (it.hasNext()) {
+      final Pair<String, String> key = it.next();
+      if (!this.pending.remove(key)) {
+        continue;
+      }
+      batch.add(new Invalidation(key.getLeft(), key.getRight()));
+      if (batch.size() == this.maxBatchSize) {
+        this.publish(batch);
+        batch = new ArrayList<>();
+        published = true;
+      }
+    }
+    if (!batch.isEmpty()) {
+      this.publish(batch);
+    } else if (!published) {
+      this.transport.publish(new InvalidationBatch(
+          this.nodeId, this.epoch, this.sequence.get(), Collections.emptyList()
+      ));
+    }
+  }
+
+  public int getPendingCount() {
+    return this.pending.size();
+  }
+
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  /**
+   * Publishes what is queued and stops receiving.
+   */
+  @Override
+  public void close() {
+    this.flusher.cancel(false);
+    this.flush();
+    this.transport.unsubscribe(this.subscriber);
+  }
+
+  void onBatch(InvalidationBatch batch) {
+    if (this.nodeId.equals(batch.getSource()) && this.epoch == batch.getEpoch()) {
+      return;
+    }
+    final Received received = this.received.computeIfAbsent(
+        batch.getSource(), source -> new Received()
+    );
+    synchronized (received) {
+      if (received.epoch != batch.getEpoch()) {
+        received.epoch = batch.getEpoch();
+        received.sequence = batch.isHeartbeat() ? batch.getSequence() : batch.getSequence() - 1;
+      }
+      if (batch.getSequence() <= received.sequence) {
+        if (!batch.isHeartbeat()) {
+          log.debug("status=staleBatch, source={}, sequence={}, last={}",
+              batch.getSource(), batch.getSequence(), received.sequence
+          );
+        }
+        return;
+      }
+      // a heartbeat carries the last published sequence, a batch the next one
+      final long expected = batch.isHeartbeat() ? received.sequence : received.sequence + 1;
+      if (batch.getSequence() > expected) {
+        log.warn("status=batchesLost, source={}, lost={}, action=clearAll",
+            batch.getSource(), batch.getSequence() - expected
+        );
+        this.caches
+            .values()
+            .forEach(Cache::clear);
+      }
+      received.sequence = batch.getSequence();
+    }
+    for (final Invalidation invalidation : batch.getInvalidations()) {
+      this.removeLocally(invalidation.getCache(), invalidation.getKey());
+    }
+  }
+
+  private void publish(List<Invalidation> invalidations) {
+    this.transport.publish(new InvalidationBatch(
+        this.nodeId, this.epoch, this.sequence.incrementAndGet(), invalidations
+    ));
+  }
+
+  private void flushQuietly() {
+    try {
+      this.flush();
+    } catch (RuntimeException e) {
+      log.warn("status=flushFailed, pending={}, msg={}", this.pending.size(), e.getMessage(), e);
+    }
+  }
+
+  private void removeLocally(String name, String key) {
+    final MutableCache cache = this.caches.get(name);
+    if (cache == null) {
+      return;
+    }
+    if (key == null) {
+      cache.clear();
+    } else {
+      cache.remove(key);
+    }
+  }
+
+  static class Received {
+
+    long epoch;
+    long sequence;
+  }
+}
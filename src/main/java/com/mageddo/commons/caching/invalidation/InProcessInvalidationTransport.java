@@ -0,0 +1,45 @@
+package com.mageddo.commons.caching.invalidation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Delivers the batches to the subscribers of the same instance on the publisher thread, for
+ * caches of the same JVM and for tests, it never loses batches.
+ */
+@Slf4j
+public class InProcessInvalidationTransport implements InvalidationTransport {
+
+  private final List<Consumer<InvalidationBatch>> subscribers = new CopyOnWriteArrayList<>();
+
+  @Override
+  public void publish(InvalidationBatch batch) {
+    for (final Consumer<InvalidationBatch> subscriber : this.subscribers) {
+      try {
+        subscriber.accept(batch);
+      } catch (RuntimeException e) {
+        log.warn("status=subscriberFailed, source={}, msg={}",
+            batch.getSource(), e.getMessage(), e
+        );
+      }
+    }
+  }
+
+  @Override
+  public void subscribe(Consumer<InvalidationBatch> subscriber) {
+    this.subscribers.add(subscriber);
+  }
+
+  @Override
+  public void unsubscribe(Consumer<InvalidationBatch> subscriber) {
+    this.subscribers.remove(subscriber);
+  }
+
+  @Override
+  public void close() {
+    this.subscribers.clear();
+  }
+}
@@ -0,0 +1,22 @@
+package com.mageddo.commons.caching.invalidation;
+
+import lombok.Value;
+
+/**
+ * A key which changed on a cache, or the whole cache when the key is null.
+ */
+@Value
+public class Invalidation {
+
+  /**
+   * Name the cache was registered with on {@link CacheInvalidator#register(String,
+   * com.mageddo.commons.caching.MutableCache)}.
+   */
+  String cache;
+
+  String key;
+
+  public boolean isAll() {
+    return this.key == null;
+  }
+}
@@ -0,0 +1,30 @@
+package com.mageddo.commons.caching.invalidation;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * Invalidations flushed together by a node, the sequences of a source epoch are consecutive, so
+ * receivers tell duplicated, late or lost batches apart. A batch without invalidations is a
+ * heartbeat, it carries the last sequence published, so a lost last batch is noticed even if
+ * nothing else changes.
+ */
+@Value
+public class InvalidationBatch {
+
+  String source;
+
+  /**
+   * Random per {@link CacheInvalidator} instance, so a restarted node starts a new sequence.
+   */
+  long epoch;
+
+  long sequence;
+
+  List<Invalidation> invalidations;
+
+  public boolean isHeartbeat() {
+    return this.invalidations.isEmpty();
+  }
+}
@@ -0,0 +1,74 @@
+package com.mageddo.commons.caching.invalidation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary form of a batch: magic (int), source (UTF), epoch (long), sequence (long) and
+ * invalidations count (int), each invalidation is: cache (UTF), has key (boolean) and key (UTF,
+ * only when it has).
+ */
+class InvalidationCodec {
+
+  static final int MAGIC = 0x494E5632;
+
+  private InvalidationCodec() {
+  }
+
+  static byte[] encode(InvalidationBatch batch) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+        64 + batch.getInvalidations()
+            .size() * 32
+    );
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeUTF(batch.getSource());
+      out.writeLong(batch.getEpoch());
+      out.writeLong(batch.getSequence());
+      out.writeInt(batch.getInvalidations()
+          .size());
+      for (final Invalidation invalidation : batch.getInvalidations()) {
+        out.writeUTF(invalidation.getCache());
+        out.writeBoolean(!invalidation.isAll());
+        if (!invalidation.isAll()) {
+          out.writeUTF(invalidation.getKey());
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @throws IllegalArgumentException when the bytes aren't an encoded batch.
+   */
+  static InvalidationBatch decode(byte[] data, int offset, int length) {
+    try (DataInputStream in = new DataInputStream(
+        new ByteArrayInputStream(data, offset, length)
+    )) {
+      if (in.readInt() != MAGIC) {
+        throw new IllegalArgumentException("not an invalidation batch");
+      }
+      final String source = in.readUTF();
+      final long epoch = in.readLong();
+      final long sequence = in.readLong();
+      final int count = in.readInt();
+      final List<Invalidation> invalidations = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        final String cache = in.readUTF();
+        final String key = in.readBoolean() ? in.readUTF() : null;
+        invalidations.add(new Invalidation(cache, key));
+      }
+      return new InvalidationBatch(source, epoch, sequence, invalidations);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("malformed invalidation batch", e);
+    }
+  }
+}
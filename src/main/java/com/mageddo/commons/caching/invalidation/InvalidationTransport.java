@@ -0,0 +1,27 @@
+package com.mageddo.commons.caching.invalidation;
+
+import java.io.Closeable;
+import java.util.function.Consumer;
+
+/**
+ * Carries the invalidation batches between the nodes. Delivery is best effort, batches may be
+ * lost, duplicated or reordered, {@link CacheInvalidator} handles that by their sequences.
+ * Publishers may also receive their own batches.
+ */
+public interface InvalidationTransport extends Closeable {
+
+  void publish(InvalidationBatch batch);
+
+  /**
+   * @param subscriber called for every received batch, it must not block.
+   */
+  void subscribe(Consumer<InvalidationBatch> subscriber);
+
+  void unsubscribe(Consumer<InvalidationBatch> subscriber);
+
+  /**
+   * Stops receiving and releases the transport resources.
+   */
+  @Override
+  void close();
+}
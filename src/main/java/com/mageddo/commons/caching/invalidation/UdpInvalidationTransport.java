@@ -0,0 +1,141 @@
+package com.mageddo.commons.caching.invalidation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import com.mageddo.commons.concurrent.Threads;
+import com.mageddo.commons.lang.Objects;
+
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends every batch as a single datagram to each peer and receives the peers batches on a
+ * daemon thread. A batch too big for a datagram is sent as whole cache invalidations of the
+ * caches it touches, dropping fewer keys isn't possible without reassembly.
+ */
+@Slf4j
+public class UdpInvalidationTransport implements InvalidationTransport {
+
+  /**
+   * Biggest payload sent on a single datagram, safely below the UDP limit.
+   */
+  public static final int MAX_PACKET_SIZE = 60_000;
+
+  private final DatagramSocket socket;
+  private final List<InetSocketAddress> peers;
+  private final List<Consumer<InvalidationBatch>> subscribers;
+  private final Thread receiver;
+  private volatile boolean closed;
+
+  /**
+   * @param bindAddress where to receive the peers batches, an ephemeral loopback port by default.
+   * @param peers       where to send the batches, the other nodes bind addresses.
+   */
+  @Builder
+  private UdpInvalidationTransport(InetSocketAddress bindAddress, List<InetSocketAddress> peers) {
+    try {
+      this.socket = new DatagramSocket(Objects.useItOrDefault(
+          bindAddress, () -> new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)
+      ));
+    } catch (SocketException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.peers = new CopyOnWriteArrayList<>(Objects.useItOrDefault(peers, Collections::emptyList));
+    this.subscribers = new CopyOnWriteArrayList<>();
+    this.receiver = Threads.createDaemonThread(this::receive);
+    this.receiver.setName("invalidation-udp-" + this.socket.getLocalPort());
+    this.receiver.start();
+  }
+
+  @Override
+  public void publish(InvalidationBatch batch) {
+    byte[] data = InvalidationCodec.encode(batch);
+    if (data.length > MAX_PACKET_SIZE) {
+      data = InvalidationCodec.encode(wholeCaches(batch));
+    }
+    for (final InetSocketAddress peer : this.peers) {
+      try {
+        this.socket.send(new DatagramPacket(data, data.length, peer));
+      } catch (IOException e) {
+        log.warn("status=sendFailed, peer={}, sequence={}, msg={}",
+            peer, batch.getSequence(), e.getMessage()
+        );
+      }
+    }
+  }
+
+  @Override
+  public void subscribe(Consumer<InvalidationBatch> subscriber) {
+    this.subscribers.add(subscriber);
+  }
+
+  @Override
+  public void unsubscribe(Consumer<InvalidationBatch> subscriber) {
+    this.subscribers.remove(subscriber);
+  }
+
+  public void addPeer(InetSocketAddress peer) {
+    this.peers.add(peer);
+  }
+
+  /**
+   * Where this transport receives, to be given as a peer to the other nodes.
+   */
+  public InetSocketAddress getLocalAddress() {
+    return (InetSocketAddress) this.socket.getLocalSocketAddress();
+  }
+
+  @Override
+  public void close() {
+    this.closed = true;
+    this.socket.close();
+  }
+
+  void receive() {
+    final byte[] buffer = new byte[65_536];
+    final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+    while (!this.closed) {
+      try {
+        packet.setLength(buffer.length);
+        this.socket.receive(packet);
+        final InvalidationBatch batch = InvalidationCodec.decode(
+            buffer, packet.getOffset(), packet.getLength()
+        );
+        for (final Consumer<InvalidationBatch> subscriber : this.subscribers) {
+          subscriber.accept(batch);
+        }
+      } catch (IOException e) {
+        if (!this.closed) {
+          log.warn("status=receiveFailed, msg={}", e.getMessage(), e);
+        }
+      } catch (RuntimeException e) {
+        log.warn("status=invalidBatch, from={}, msg={}", packet.getSocketAddress(), e.getMessage());
+      }
+    }
+  }
+
+  static InvalidationBatch wholeCaches(InvalidationBatch batch) {
+    final Set<String> caches = new LinkedHashSet<>();
+    for (final Invalidation invalidation : batch.getInvalidations()) {
+      caches.add(invalidation.getCache());
+    }
+    final List<Invalidation> invalidations = new ArrayList<>(caches.size());
+    caches.forEach(cache -> invalidations.add(new Invalidation(cache, null)));
+    return new InvalidationBatch(
+        batch.getSource(), batch.getEpoch(), batch.getSequence(), invalidations
+    );
+  }
+}
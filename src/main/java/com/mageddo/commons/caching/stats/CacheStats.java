@@ -0,0 +1,76 @@
+package com.mageddo.commons.caching.stats;
+
+import lombok.Value;
+
+/**
+ * Immutable snapshot of a cache statistics, counted since the cache was created.
+ */
+@Value
+public class CacheStats {
+
+  private static final CacheStats EMPTY = new CacheStats(0, 0, 0, 0, 0, 0, 0, 0);
+
+  long hitCount;
+  long missCount;
+  long loadSuccessCount;
+  long loadFailureCount;
+
+  /**
+   * Spent loading values, successful or not.
+   */
+  long totalLoadNanos;
+
+  /**
+   * Entries evicted because the cache was full.
+   */
+  long evictionCount;
+
+  long expirationCount;
+
+  /**
+   * Entries removed or cleared by the user.
+   */
+  long explicitRemovalCount;
+
+  public static CacheStats empty() {
+    return EMPTY;
+  }
+
+  public long getRequestCount() {
+    return this.hitCount + this.missCount;
+  }
+
+  /**
+   * @return one when there were no requests.
+   */
+  public double getHitRate() {
+    final long requests = this.getRequestCount();
+    return requests == 0 ? 1.0 : (double) this.hitCount / requests;
+  }
+
+  public double getMissRate() {
+    final long requests = this.getRequestCount();
+    return requests == 0 ? 0.0 : (double) this.missCount / requests;
+  }
+
+  public double getAverageLoadNanos() {
+    final long loads = this.loadSuccessCount + this.loadFailureCount;
+    return loads == 0 ? 0.0 : (double) this.totalLoadNanos / loads;
+  }
+
+  /**
+   * What happened between the other snapshot and this one, useful to get rates.
+   */
+  public CacheStats minus(CacheStats other) {
+    return new CacheStats(
+        Math.max(0, this.hitCount - other.hitCount),
+        Math.max(0, this.missCount - other.missCount),
+        Math.max(0, this.loadSuccessCount - other.loadSuccessCount),
+        Math.max(0, this.loadFailureCount - other.loadFailureCount),
+        Math.max(0, this.totalLoadNanos - other.totalLoadNanos),
+        Math.max(0, this.evictionCount - other.evictionCount),
+        Math.max(0, this.expirationCount - other.expirationCount),
+        Math.max(0, this.explicitRemovalCount - other.explicitRemovalCount)
+    );
+  }
+}
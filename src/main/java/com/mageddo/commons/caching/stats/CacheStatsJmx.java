@@ -0,0 +1,110 @@
+package com.mageddo.commons.caching.stats;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Publishes a cache stats on the platform MBean server as
+ * {@code com.mageddo.commons.caching:type=CacheStats,name=<name>}, every attribute read takes a
+ * new snapshot.
+ */
+public class CacheStatsJmx implements CacheStatsMXBean {
+
+  private final Supplier<CacheStats> stats;
+  private final ObjectName objectName;
+
+  CacheStatsJmx(Supplier<CacheStats> stats, ObjectName objectName) {
+    this.stats = stats;
+    this.objectName = objectName;
+  }
+
+  /**
+   * @param stats like {@code cache::stats}.
+   * @throws IllegalStateException when the name is invalid or already registered.
+   */
+  public static CacheStatsJmx register(String name, Supplier<CacheStats> stats) {
+    try {
+      final ObjectName objectName = new ObjectName(String.format(
+          "com.mageddo.commons.caching:type=CacheStats,name=%s", ObjectName.quote(name)
+      ));
+      final CacheStatsJmx bean = new CacheStatsJmx(stats, objectName);
+      ManagementFactory
+          .getPlatformMBeanServer()
+          .registerMBean(bean, objectName);
+      return bean;
+    } catch (JMException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public void unregister() {
+    try {
+      ManagementFactory
+          .getPlatformMBeanServer()
+          .unregisterMBean(this.objectName);
+    } catch (JMException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public ObjectName getObjectName() {
+    return objectName;
+  }
+
+  @Override
+  public long getHitCount() {
+    return this.stats.get()
+        .getHitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return this.stats.get()
+        .getMissCount();
+  }
+
+  @Override
+  public double getHitRate() {
+    return this.stats.get()
+        .getHitRate();
+  }
+
+  @Override
+  public long getLoadSuccessCount() {
+    return this.stats.get()
+        .getLoadSuccessCount();
+  }
+
+  @Override
+  public long getLoadFailureCount() {
+    return this.stats.get()
+        .getLoadFailureCount();
+  }
+
+  @Override
+  public double getAverageLoadNanos() {
+    return this.stats.get()
+        .getAverageLoadNanos();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return this.stats.get()
+        .getEvictionCount();
+  }
+
+  @Override
+  public long getExpirationCount() {
+    return this.stats.get()
+        .getExpirationCount();
+  }
+
+  @Override
+  public long getExplicitRemovalCount() {
+    return this.stats.get()
+        .getExplicitRemovalCount();
+  }
+}
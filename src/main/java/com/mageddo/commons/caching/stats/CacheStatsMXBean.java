@@ -0,0 +1,25 @@
+package com.mageddo.commons.caching.stats;
+
+/**
+ * JMX view of {@link CacheStats}, see {@link CacheStatsJmx}.
+ */
+public interface CacheStatsMXBean {
+
+  long getHitCount();
+
+  long getMissCount();
+
+  double getHitRate();
+
+  long getLoadSuccessCount();
+
+  long getLoadFailureCount();
+
+  double getAverageLoadNanos();
+
+  long getEvictionCount();
+
+  long getExpirationCount();
+
+  long getExplicitRemovalCount();
+}
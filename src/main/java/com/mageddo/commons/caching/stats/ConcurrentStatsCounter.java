@@ -0,0 +1,67 @@
+package com.mageddo.commons.caching.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.mageddo.commons.caching.RemovalCause;
+
+/**
+ * Striped {@link LongAdder} counters, threads updating them concurrently rarely contend, reading
+ * them sums the stripes, so snapshots aren't atomic across the counters.
+ */
+public class ConcurrentStatsCounter implements StatsCounter {
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder loadSuccesses = new LongAdder();
+  private final LongAdder loadFailures = new LongAdder();
+  private final LongAdder totalLoadNanos = new LongAdder();
+  private final LongAdder[] removals;
+
+  public ConcurrentStatsCounter() {
+    this.removals = new LongAdder[RemovalCause.values().length];
+    for (int i = 0; i < this.removals.length; i++) {
+      this.removals[i] = new LongAdder();
+    }
+  }
+
+  @Override
+  public void recordHits(int count) {
+    this.hits.add(count);
+  }
+
+  @Override
+  public void recordMisses(int count) {
+    this.misses.add(count);
+  }
+
+  @Override
+  public void recordLoadSuccess(long loadNanos) {
+    this.loadSuccesses.increment();
+    this.totalLoadNanos.add(loadNanos);
+  }
+
+  @Override
+  public void recordLoadFailure(long loadNanos) {
+    this.loadFailures.increment();
+    this.totalLoadNanos.add(loadNanos);
+  }
+
+  @Override
+  public void recordRemoval(RemovalCause cause, int count) {
+    this.removals[cause.ordinal()].add(count);
+  }
+
+  @Override
+  public CacheStats snapshot() {
+    return new CacheStats(
+        this.hits.sum(),
+        this.misses.sum(),
+        this.loadSuccesses.sum(),
+        this.loadFailures.sum(),
+        this.totalLoadNanos.sum(),
+        this.removals[RemovalCause.SIZE.ordinal()].sum(),
+        this.removals[RemovalCause.EXPIRED.ordinal()].sum(),
+        this.removals[RemovalCause.EXPLICIT.ordinal()].sum()
+    );
+  }
+}
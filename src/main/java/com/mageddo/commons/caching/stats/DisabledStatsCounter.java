@@ -0,0 +1,33 @@
+package com.mageddo.commons.caching.stats;
+
+import com.mageddo.commons.caching.RemovalCause;
+
+enum DisabledStatsCounter implements StatsCounter {
+
+  INSTANCE;
+
+  @Override
+  public void recordHits(int count) {
+  }
+
+  @Override
+  public void recordMisses(int count) {
+  }
+
+  @Override
+  public void recordLoadSuccess(long loadNanos) {
+  }
+
+  @Override
+  public void recordLoadFailure(long loadNanos) {
+  }
+
+  @Override
+  public void recordRemoval(RemovalCause cause, int count) {
+  }
+
+  @Override
+  public CacheStats snapshot() {
+    return CacheStats.empty();
+  }
+}
@@ -0,0 +1,33 @@
+package com.mageddo.commons.caching.stats;
+
+import com.mageddo.commons.caching.RemovalCause;
+
+/**
+ * Accumulates the statistics of a cache, called on its hot paths, so implementations must be
+ * cheap and thread safe.
+ */
+public interface StatsCounter {
+
+  void recordHits(int count);
+
+  void recordMisses(int count);
+
+  void recordLoadSuccess(long loadNanos);
+
+  void recordLoadFailure(long loadNanos);
+
+  void recordRemoval(RemovalCause cause, int count);
+
+  CacheStats snapshot();
+
+  /**
+   * Counts nothing, the default for the caches which weren't asked to record stats.
+   */
+  static StatsCounter disabled() {
+    return DisabledStatsCounter.INSTANCE;
+  }
+
+  static StatsCounter concurrent() {
+    return new ConcurrentStatsCounter();
+  }
+}
@@ -0,0 +1,58 @@
+package com.mageddo.commons.concurrent;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool whose core size follows the queue depth: a task queued while more tasks are
+ * waiting than there are core threads adds a core thread, up to the maximum size, and a thread
+ * finishing a task when the queue is empty and at most half of the threads are busy removes one,
+ * down to the minimum size. A plain {@link ThreadPoolExecutor} with a bounded queue only grows
+ * after the queue is full, when the tasks already waited.
+ *
+ * @see ThreadPool#newAdaptive(int, int, int, RejectedExecutionHandler)
+ */
+public class AdaptiveThreadPoolExecutor extends ThreadPoolExecutor {
+
+  public static final Duration DEFAULT_KEEP_ALIVE = Duration.ofSeconds(60);
+
+  private final int minSize;
+
+  public AdaptiveThreadPoolExecutor(
+      int minSize, int maxSize, int queueCapacity, Duration keepAlive,
+      RejectedExecutionHandler handler
+  ) {
+    super(
+        minSize, maxSize, keepAlive.toNanos(), TimeUnit.NANOSECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), Threads::createDaemonThread, handler
+    );
+    this.minSize = minSize;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    super.execute(command);
+    final int core = this.getCorePoolSize();
+    if (core < this.getMaximumPoolSize() && this.getQueue()
+        .size() > core) {
+      this.setCorePoolSize(core + 1);
+    }
+  }
+
+  @Override
+  protected void afterExecute(Runnable r, Throwable t) {
+    super.afterExecute(r, t);
+    final int core = this.getCorePoolSize();
+    if (core > this.minSize && this.getQueue()
+        .isEmpty() && this.getActiveCount() <= core / 2) {
+      this.setCorePoolSize(core - 1);
+    }
+  }
+
+  public int getMinSize() {
+    return minSize;
+  }
+}
@@ -0,0 +1,74 @@
+package com.mageddo.commons.concurrent;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a bounded pool does with a task when its queue is full.
+ *
+ * @see ThreadPool#newBounded(int, int, RejectedExecutionHandler)
+ */
+public class Backpressure {
+
+  private Backpressure() {
+  }
+
+  /**
+   * Throws {@link RejectedExecutionException}, the JDK default.
+   */
+  public static RejectedExecutionHandler abort() {
+    return new ThreadPoolExecutor.AbortPolicy();
+  }
+
+  /**
+   * Runs the task on the submitting thread, which slows the producers down to the pool pace.
+   */
+  public static RejectedExecutionHandler callerRuns() {
+    return new ThreadPoolExecutor.CallerRunsPolicy();
+  }
+
+  /**
+   * Discards the oldest queued task to make room, for work where only the latest matters.
+   */
+  public static RejectedExecutionHandler dropOldest() {
+    return new ThreadPoolExecutor.DiscardOldestPolicy();
+  }
+
+  /**
+   * Blocks the submitting thread until there is room on the queue, throwing
+   * {@link RejectedExecutionException} when the timeout passes first.
+   */
+  public static RejectedExecutionHandler block(Duration timeout) {
+    return new BlockPolicy(timeout);
+  }
+
+  static class BlockPolicy implements RejectedExecutionHandler {
+
+    private final Duration timeout;
+
+    BlockPolicy(Duration timeout) {
+      this.timeout = timeout;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+      if (executor.isShutdown()) {
+        throw new RejectedExecutionException("executor was shutdown");
+      }
+      try {
+        if (!executor
+            .getQueue()
+            .offer(r, this.timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+          throw new RejectedExecutionException("queue still full after " + this.timeout);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread()
+            .interrupt();
+        throw new RejectedExecutionException(e);
+      }
+    }
+  }
+}
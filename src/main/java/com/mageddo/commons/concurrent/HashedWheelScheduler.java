@@ -0,0 +1,482 @@
+package com.mageddo.commons.concurrent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.mageddo.commons.lang.Objects;
+
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Scheduler backed by a hashed timing wheel: a ring of buckets where each one holds the tasks
+ * due on its tick, tasks further than a wheel turn wait the remaining rounds on their bucket.
+ * Scheduling and cancelling just enqueue the task on lock free queues, O(1), a single daemon
+ * ticker thread moves them to the wheel, unlinks the cancelled ones and runs the due ones of a
+ * bucket every tick, in batch. Tasks run up to a tick late, never early, so it suits many short
+ * timeouts which are mostly cancelled, where a {@link ScheduledThreadPoolExecutor} pays
+ * O(log n) on a locked heap for every schedule and cancel.
+ *
+ * <p>Tasks run on the ticker thread unless an executor is given, so they must be quick, a slow
+ * task delays the next ticks. On shutdown the periodic tasks are cancelled and the delayed ones
+ * still run.</p>
+ *
+ * @see <a href="http://www.cs.columbia.edu/~nahum/w6998/papers/ton97-timing-wheels.pdf">
+ * Hashed and Hierarchical Timing Wheels</a>
+ */
+@Slf4j
+public class HashedWheelScheduler extends AbstractExecutorService
+    implements ScheduledExecutorService {
+
+  public static final Duration DEFAULT_TICK = Duration.ofMillis(10);
+  public static final int DEFAULT_WHEEL_SIZE = 512;
+  public static final String DEFAULT_NAME = "hashed-wheel";
+
+  /**
+   * Bounds the tasks moved to the wheel per tick, so a burst doesn't stall the due ones.
+   */
+  static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+  private final long tickNanos;
+  private final Bucket[] wheel;
+  private final int mask;
+  private final Executor executor;
+  private final long startedAt;
+  private final Queue<WheelTask<?>> pending;
+  private final Queue<WheelTask<?>> cancelled;
+  private final AtomicInteger scheduled;
+  private final CountDownLatch terminated;
+  private final Thread ticker;
+  private volatile boolean shutdown;
+  private volatile boolean stopped;
+  private volatile List<Runnable> unprocessed;
+  private long tick;
+
+  public HashedWheelScheduler() {
+    this(null, null, null, null);
+  }
+
+  /**
+   * @param name      of the ticker thread, {@link #DEFAULT_NAME} by default.
+   * @param tick      resolution, {@link #DEFAULT_TICK} by default, tasks run up to it late.
+   * @param wheelSize buckets, rounded up to a power of two, {@link #DEFAULT_WHEEL_SIZE} by
+   *                  default, tasks due further than tick * wheelSize wait rounds on the wheel.
+   * @param executor  where the due tasks run, on the ticker thread by default.
+   */
+  @Builder
+  private HashedWheelScheduler(String name, Duration tick, Integer wheelSize, Executor executor) {
+    this.tickNanos = Math.max(1, Objects.firstNonNull(tick, DEFAULT_TICK)
+        .toNanos());
+    final int size = Integer.highestOneBit(
+        Math.max(1, Objects.firstNonNull(wheelSize, DEFAULT_WHEEL_SIZE) * 2 - 1)
+    );
+    this.wheel = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      this.wheel[i] = new Bucket();
+    }
+    this.mask = size - 1;
+    this.executor = executor;
+    this.pending = new ConcurrentLinkedQueue<>();
+    this.cancelled = new ConcurrentLinkedQueue<>();
+    this.scheduled = new AtomicInteger();
+    this.terminated = new CountDownLatch(1);
+    this.unprocessed = Collections.emptyList();
+    this.startedAt = System.nanoTime();
+    this.ticker = Threads
+        .daemonThreadFactory(Objects.firstNonNull(name, DEFAULT_NAME))
+        .newThread(this::work);
+    this.ticker.start();
+  }
+
+  @Override
+  public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+    return this.enqueue(new WheelTask<>(
+        Executors.callable(command, null), this.deadlineOf(unit.toNanos(delay)), 0
+    ));
+  }
+
+  @Override
+  public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+    return this.enqueue(new WheelTask<>(callable, this.deadlineOf(unit.toNanos(delay)), 0));
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleAtFixedRate(
+      Runnable command, long initialDelay, long period, TimeUnit unit
+  ) {
+    if (period <= 0) {
+      throw new IllegalArgumentException("period must be greater than zero: " + period);
+    }
+    return this.enqueue(new WheelTask<>(
+        Executors.callable(command, null), this.deadlineOf(unit.toNanos(initialDelay)),
+        unit.toNanos(period)
+    ));
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleWithFixedDelay(
+      Runnable command, long initialDelay, long delay, TimeUnit unit
+  ) {
+    if (delay <= 0) {
+      throw new IllegalArgumentException("delay must be greater than zero: " + delay);
+    }
+    return this.enqueue(new WheelTask<>(
+        Executors.callable(command, null), this.deadlineOf(unit.toNanos(initialDelay)),
+        -unit.toNanos(delay)
+    ));
+  }
+
+  /**
+   * Runs the command on the next tick.
+   */
+  @Override
+  public void execute(Runnable command) {
+    this.schedule(command, 0, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Tasks scheduled and not yet done nor cancelled, periodic ones count once.
+   */
+  public int getScheduledCount() {
+    return this.scheduled.get();
+  }
+
+  public Duration getTick() {
+    return Duration.ofNanos(this.tickNanos);
+  }
+
+  @Override
+  public void shutdown() {
+    this.shutdown = true;
+  }
+
+  /**
+   * Stops the ticker right away, interrupting the task running on it.
+   *
+   * @return the tasks which never ran.
+   */
+  @Override
+  public List<Runnable> shutdownNow() {
+    this.shutdown = true;
+    this.stopped = true;
+    this.ticker.interrupt();
+    if (Thread.currentThread() == this.ticker) {
+      return Collections.emptyList();
+    }
+    try {
+      this.terminated.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread()
+          .interrupt();
+    }
+    return this.unprocessed;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return this.shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return this.terminated.getCount() == 0;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return this.terminated.await(timeout, unit);
+  }
+
+  <V> WheelTask<V> enqueue(WheelTask<V> task) {
+    if (this.shutdown) {
+      throw new RejectedExecutionException("scheduler was shutdown");
+    }
+    this.scheduled.incrementAndGet();
+    this.pending.add(task);
+    return task;
+  }
+
+  /**
+   * Nanos since the scheduler started, saturated so huge delays never overflow.
+   */
+  long deadlineOf(long delayNanos) {
+    final long now = this.now();
+    final long delay = Math.max(0, delayNanos);
+    return delay > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + delay;
+  }
+
+  long now() {
+    return System.nanoTime() - this.startedAt;
+  }
+
+  void work() {
+    boolean periodicCancelled = false;
+    try {
+      while (!this.stopped) {
+        if (this.shutdown && !periodicCancelled) {
+          this.cancelPeriodic();
+          periodicCancelled = true;
+        }
+        if (this.shutdown && this.scheduled.get() == 0) {
+          break;
+        }
+        final long deadline = this.waitForNextTick();
+        if (this.stopped) {
+          break;
+        }
+        this.removeCancelled();
+        this.transferPending();
+        this.expire(this.wheel[(int) (this.tick & this.mask)], deadline);
+        this.tick++;
+      }
+    } catch (Throwable e) {
+      log.error("status=tickerFailed, msg={}", e.getMessage(), e);
+      throw e;
+    } finally {
+      if (this.stopped) {
+        Thread.interrupted();
+        this.unprocessed = this.drain();
+      }
+      this.terminated.countDown();
+    }
+  }
+
+  /**
+   * @return the end of the current tick, the tasks due until then can run.
+   */
+  private long waitForNextTick() {
+    final long deadline = this.tickNanos * (this.tick + 1);
+    while (!this.stopped) {
+      final long sleep = deadline - this.now();
+      if (sleep <= 0) {
+        break;
+      }
+      LockSupport.parkNanos(this, sleep);
+    }
+    return deadline;
+  }
+
+  private void removeCancelled() {
+    for (WheelTask<?> task = this.cancelled.poll(); task != null; task = this.cancelled.poll()) {
+      if (task.bucket != null) {
+        task.bucket.remove(task);
+      }
+      task.leave();
+    }
+  }
+
+  private void transferPending() {
+    for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+      final WheelTask<?> task = this.pending.poll();
+      if (task == null) {
+        break;
+      }
+      if (!task.isCancelled()) {
+        this.place(task);
+      }
+    }
+  }
+
+  private void place(WheelTask<?> task) {
+    final long due = task.deadline / this.tickNanos;
+    task.remainingRounds = (due - this.tick) / this.wheel.length;
+    this.wheel[(int) (Math.max(due, this.tick) & this.mask)].add(task);
+  }
+
+  private void expire(Bucket bucket, long deadline) {
+    WheelTask<?> task = bucket.head;
+    while (task != null) {
+      final WheelTask<?> next = task.next;
+      if (task.isCancelled()) {
+        bucket.remove(task);
+      } else if (task.remainingRounds > 0) {
+        task.remainingRounds--;
+      } else {
+        bucket.remove(task);
+        this.dispatch(task);
+      }
+      task = next;
+    }
+  }
+
+  private void dispatch(WheelTask<?> task) {
+    if (!task.isPeriodic()) {
+      task.leave();
+    }
+    if (this.executor == null) {
+      task.run();
+      return;
+    }
+    try {
+      this.executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      log.warn("status=taskRejected, msg={}", e.getMessage());
+      task.cancel(false);
+    }
+  }
+
+  private void cancelPeriodic() {
+    for (final Bucket bucket : this.wheel) {
+      for (WheelTask<?> task = bucket.head; task != null; task = task.next) {
+        if (task.isPeriodic()) {
+          task.cancel(false);
+        }
+      }
+    }
+    for (final WheelTask<?> task : this.pending) {
+      if (task.isPeriodic()) {
+        task.cancel(false);
+      }
+    }
+  }
+
+  private List<Runnable> drain() {
+    final List<Runnable> tasks = new ArrayList<>();
+    for (final Bucket bucket : this.wheel) {
+      for (WheelTask<?> task = bucket.head; task != null; task = task.next) {
+        if (!task.isCancelled()) {
+          tasks.add(task);
+        }
+      }
+    }
+    for (WheelTask<?> task = this.pending.poll(); task != null; task = this.pending.poll()) {
+      if (!task.isCancelled()) {
+        tasks.add(task);
+      }
+    }
+    return tasks;
+  }
+
+  /**
+   * Its wheel links are only touched by the ticker thread.
+   */
+  class WheelTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+    /**
+     * Zero for one shot tasks, positive for fixed rate and negative for fixed delay ones.
+     */
+    private final long period;
+    private final AtomicBoolean live;
+    private volatile long deadline;
+    long remainingRounds;
+    Bucket bucket;
+    WheelTask<?> previous;
+    WheelTask<?> next;
+
+    WheelTask(Callable<V> callable, long deadline, long period) {
+      super(callable);
+      this.deadline = deadline;
+      this.period = period;
+      this.live = new AtomicBoolean(true);
+    }
+
+    @Override
+    public void run() {
+      if (!this.isPeriodic()) {
+        super.run();
+        return;
+      }
+      if (this.runAndReset() && !this.isCancelled()) {
+        if (HashedWheelScheduler.this.shutdown) {
+          this.cancel(false);
+          return;
+        }
+        this.deadline = this.period > 0
+            ? this.deadline + this.period
+            : HashedWheelScheduler.this.deadlineOf(-this.period);
+        HashedWheelScheduler.this.pending.add(this);
+      } else if (!this.isCancelled()) {
+        this.leave();
+      }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      final boolean cancelled = super.cancel(mayInterruptIfRunning);
+      if (cancelled) {
+        HashedWheelScheduler.this.cancelled.add(this);
+      }
+      return cancelled;
+    }
+
+    @Override
+    public boolean isPeriodic() {
+      return this.period != 0;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(this.deadline - HashedWheelScheduler.this.now(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      return Long.compare(
+          this.getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS)
+      );
+    }
+
+    /**
+     * Stops counting it as scheduled, only the first call counts.
+     */
+    void leave() {
+      if (this.live.compareAndSet(true, false)) {
+        HashedWheelScheduler.this.scheduled.decrementAndGet();
+      }
+    }
+  }
+
+  static class Bucket {
+
+    WheelTask<?> head;
+    WheelTask<?> tail;
+
+    void add(WheelTask<?> task) {
+      task.bucket = this;
+      task.previous = this.tail;
+      task.next = null;
+      if (this.tail == null) {
+        this.head = task;
+      } else {
+        this.tail.next = task;
+      }
+      this.tail = task;
+    }
+
+    void remove(WheelTask<?> task) {
+      if (task.previous == null) {
+        this.head = task.next;
+      } else {
+        task.previous.next = task.next;
+      }
+      if (task.next == null) {
+        this.tail = task.previous;
+      } else {
+        task.next.previous = task.previous;
+      }
+      task.bucket = null;
+      task.previous = null;
+      task.next = null;
+    }
+  }
+}
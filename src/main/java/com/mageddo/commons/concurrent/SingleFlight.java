@@ -0,0 +1,56 @@
+package com.mageddo.commons.concurrent;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent executions by key, the first caller runs the supplier while the
+ * others calling with the same key wait for its result, or exception, instead of running it
+ * again. Different keys never wait for each other and the key is forgotten as soon as its
+ * execution completes, so the in-flight map only holds the running ones.
+ */
+public class SingleFlight<K, V> {
+
+  private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  public V execute(K key, Supplier<? extends V> supplier) {
+    final CompletableFuture<V> future = new CompletableFuture<>();
+    final CompletableFuture<V> running = this.inFlight.putIfAbsent(key, future);
+    if (running != null) {
+      return await(running);
+    }
+    try {
+      final V v = supplier.get();
+      future.complete(v);
+      return v;
+    } catch (Throwable e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      this.inFlight.remove(key, future);
+    }
+  }
+
+  /**
+   * How many executions are running right now.
+   */
+  public int size() {
+    return this.inFlight.size();
+  }
+
+  static <V> V await(CompletableFuture<V> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -1,14 +1,38 @@
 package com.mageddo.commons.concurrent;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
+import com.mageddo.commons.concurrent.instrument.ExecutorStatsJmx;
+import com.mageddo.commons.concurrent.instrument.InstrumentedExecutorService;
+import com.mageddo.commons.concurrent.instrument.InstrumentedScheduledExecutorService;
 import com.mageddo.commons.lang.Singletons;
 import com.mageddo.commons.lang.exception.UnchekedInterruptedException;
 
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 public class ThreadPool {
 
   public static final int DEFAULT_SIZE = 5;
@@ -20,22 +44,104 @@ public class ThreadPool {
     );
   }
 
+  /**
+   * @param name prefix of the threads names, see {@link Threads#daemonThreadFactory(String)}.
+   */
+  public static ScheduledExecutorService newScheduled(String name, int coreSize) {
+    return Executors.newScheduledThreadPool(coreSize, Threads.daemonThreadFactory(name));
+  }
+
+  /**
+   * Timing wheel scheduler with O(1) schedule and cancel, for many short timeouts, its tasks
+   * run on its ticker thread, see {@link HashedWheelScheduler}.
+   *
+   * @param tick resolution, tasks run up to it late.
+   */
+  public static HashedWheelScheduler newHashedWheel(String name, Duration tick) {
+    return HashedWheelScheduler
+        .builder()
+        .name(name)
+        .tick(tick)
+        .build();
+  }
+
   public static ExecutorService newFixed(int maxSize) {
     return Executors.newFixedThreadPool(maxSize, Threads::createDaemonThread);
   }
 
+  /**
+   * @param name prefix of the threads names, see {@link Threads#daemonThreadFactory(String)}.
+   */
+  public static ExecutorService newFixed(String name, int maxSize) {
+    return Executors.newFixedThreadPool(maxSize, Threads.daemonThreadFactory(name));
+  }
+
+  /**
+   * Records how long the tasks wait and run on the executor.
+   *
+   * @see InstrumentedExecutorService
+   * @see ExecutorStatsJmx
+   */
+  public static InstrumentedExecutorService instrumented(String name, ExecutorService executor) {
+    return new InstrumentedExecutorService(name, executor);
+  }
+
+  public static InstrumentedScheduledExecutorService instrumented(
+      String name, ScheduledExecutorService executor
+  ) {
+    return new InstrumentedScheduledExecutorService(name, executor);
+  }
+
+  /**
+   * Fixed size pool whose queue holds at most queueCapacity tasks, what happens to the tasks
+   * submitted when it's full is up to the handler, see {@link Backpressure}.
+   */
+  public static ThreadPoolExecutor newBounded(
+      int size, int queueCapacity, RejectedExecutionHandler handler
+  ) {
+    return new ThreadPoolExecutor(
+        size, size, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+        Threads::createDaemonThread, handler
+    );
+  }
+
+  /**
+   * Bounded pool sized between minSize and maxSize threads by its queue depth.
+   *
+   * @see AdaptiveThreadPoolExecutor
+   */
+  public static ThreadPoolExecutor newAdaptive(
+      int minSize, int maxSize, int queueCapacity, RejectedExecutionHandler handler
+  ) {
+    return new AdaptiveThreadPoolExecutor(
+        minSize, maxSize, queueCapacity, AdaptiveThreadPoolExecutor.DEFAULT_KEEP_ALIVE, handler
+    );
+  }
+
+  /**
+   * Work stealing pool, every worker has its own deque, so many small tasks, or tasks forking
+   * others, don't contend on a single queue. Tasks are taken in FIFO order, its workers are
+   * daemon threads like the ones of {@link Threads#createDaemonThread(Runnable)}.
+   */
+  public static ForkJoinPool newWorkStealing(int parallelism) {
+    return new ForkJoinPool(
+        parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true
+    );
+  }
+
   public static ExecutorService main() {
     return main(DEFAULT_SIZE);
   }
 
   /**
    * Will create a singleton pool with the specified size, the size specified on the JVM first
-   * call will be considered to create  the pool.
+   * call will be considered to create  the pool. It's an {@link InstrumentedExecutorService}
+   * published on JMX as commons-main, see {@link ExecutorStatsJmx}.
    */
   public static ExecutorService main(final int maxSize) {
     return Singletons.createOrGet(
         "ThreadPool-fixed",
-        () -> newFixed(maxSize)
+        () -> published(instrumented("commons-main", newFixed("commons-main", maxSize)))
     );
   }
 
@@ -45,15 +151,169 @@ public class ThreadPool {
 
   /**
    * Will create a singleton pool with the specified size, the size specified on the JVM first
-   * call will be considered to create  the pool.
+   * call will be considered to create  the pool. It's an
+   * {@link InstrumentedScheduledExecutorService} published on JMX as commons-scheduled.
    */
   public static ScheduledExecutorService scheduled(final int coreSize) {
     return Singletons.createOrGet(
         "ThreadPool-schecheduled",
-        () -> newScheduled(coreSize)
+        () -> published(instrumented(
+            "commons-scheduled", newScheduled("commons-scheduled", coreSize)
+        ))
+    );
+  }
+
+  /**
+   * A thread per task, virtual ones on Java 21 or newer, so blocking tasks don't hold platform
+   * threads, see {@link VirtualThreads}.
+   */
+  public static ExecutorService newVirtual(String name) {
+    return VirtualThreads.newThreadPerTaskExecutor(name);
+  }
+
+  /**
+   * Singleton {@link #newVirtual(String)} pool for blocking I/O, limit how many tasks run on it
+   * at once with {@link #invokeAll(Executor, Collection, int, Duration)} or
+   * {@link #fanOut(Collection, Function, int, Duration)}.
+   */
+  public static ExecutorService virtual() {
+    return Singletons.createOrGet(
+        "ThreadPool-virtual",
+        () -> newVirtual("virtual")
     );
   }
 
+  /**
+   * Runs the tasks on the executor, at most maxConcurrency at a time, waiting until all of them
+   * finish or the deadline passes, then the unfinished ones are cancelled, interrupting them.
+   *
+   * @return the futures in the tasks order, all of them done.
+   */
+  public static <T> List<Future<T>> invokeAll(
+      Executor executor, Collection<? extends Callable<T>> tasks, int maxConcurrency,
+      Duration deadline
+  ) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("maxConcurrency must be greater than zero");
+    }
+    final long timeout = nanosOf(deadline);
+    final long start = System.nanoTime();
+    final Semaphore permits = new Semaphore(maxConcurrency);
+    final List<Future<T>> futures = new ArrayList<>(tasks.size());
+    for (final Callable<T> task : tasks) {
+      futures.add(new FutureTask<T>(task) {
+        @Override
+        protected void done() {
+          permits.release();
+        }
+      });
+    }
+    try {
+      for (final Future<T> future : futures) {
+        if (!permits.tryAcquire(timeout - (System.nanoTime() - start), TimeUnit.NANOSECONDS)) {
+          break;
+        }
+        try {
+          executor.execute((Runnable) future);
+        } catch (RejectedExecutionException e) {
+          future.cancel(false);
+          throw e;
+        }
+      }
+      for (final Future<T> future : futures) {
+        try {
+          future.get(timeout - (System.nanoTime() - start), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | CancellationException e) {
+          // reported by the future itself
+        } catch (TimeoutException e) {
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread()
+          .interrupt();
+      throw new UnchekedInterruptedException(e);
+    } finally {
+      for (final Future<T> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return futures;
+  }
+
+  /**
+   * Applies the function to every input on {@link #virtual()}, at most maxConcurrency at a time.
+   *
+   * @return the results in the inputs order.
+   * @throws CompletionException caused by the first failure, in the inputs order, or by a
+   *                             {@link TimeoutException} when the deadline passed first.
+   */
+  public static <I, O> List<O> fanOut(
+      Collection<I> inputs, Function<? super I, ? extends O> fn, int maxConcurrency,
+      Duration deadline
+  ) {
+    final List<Callable<O>> tasks = new ArrayList<>(inputs.size());
+    for (final I input : inputs) {
+      tasks.add(() -> fn.apply(input));
+    }
+    final List<Future<O>> futures = invokeAll(virtual(), tasks, maxConcurrency, deadline);
+    final List<O> results = new ArrayList<>(futures.size());
+    for (final Future<O> future : futures) {
+      try {
+        results.add(future.get());
+      } catch (CancellationException e) {
+        throw new CompletionException(new TimeoutException("deadline passed: " + deadline));
+      } catch (ExecutionException e) {
+        throw new CompletionException(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread()
+            .interrupt();
+        throw new UnchekedInterruptedException(e);
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Singleton {@link #newHashedWheel(String, Duration)} scheduler ticking every
+   * {@link HashedWheelScheduler#DEFAULT_TICK}, an alternative to {@link #scheduled()} for
+   * timeouts, its tasks must be quick.
+   */
+  public static ScheduledExecutorService hashedWheel() {
+    return Singletons.createOrGet(
+        "ThreadPool-hashed-wheel",
+        () -> newHashedWheel("commons-hashed-wheel", HashedWheelScheduler.DEFAULT_TICK)
+    );
+  }
+
+  /**
+   * Saturates to {@link Long#MAX_VALUE} instead of overflowing, so huge deadlines never pass.
+   */
+  static long nanosOf(Duration duration) {
+    if (duration.isNegative()) {
+      return 0;
+    }
+    if (duration.getSeconds() >= Long.MAX_VALUE / 1_000_000_000L) {
+      return Long.MAX_VALUE;
+    }
+    return duration.toNanos();
+  }
+
+  /**
+   * Registers the executor stats on JMX, when it fails, like when the name was taken by a copy
+   * of this class on another class loader, the executor is used anyway.
+   */
+  static <T extends InstrumentedExecutorService> T published(T executor) {
+    try {
+      ExecutorStatsJmx.register(executor);
+    } catch (IllegalStateException e) {
+      log.warn("status=jmxRegistrationFailed, executor={}, msg={}",
+          executor.getName(), e.getMessage()
+      );
+    }
+    return executor;
+  }
+
   public static void terminateAndWait(ExecutorService pool, Duration duration) {
     try {
       pool.shutdown();
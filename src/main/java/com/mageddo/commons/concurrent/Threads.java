@@ -1,6 +1,8 @@
 package com.mageddo.commons.concurrent;
 
 import java.time.Duration;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lombok.SneakyThrows;
 
@@ -19,4 +21,17 @@ public class Threads {
     t.setDaemon(true);
     return t;
   }
+
+  /**
+   * Daemon threads named name-N, N counting from zero, so profilers and thread dumps tell the
+   * pools apart.
+   */
+  public static ThreadFactory daemonThreadFactory(String name) {
+    final AtomicLong counter = new AtomicLong();
+    return r -> {
+      final Thread t = createDaemonThread(r);
+      t.setName(name + "-" + counter.getAndIncrement());
+      return t;
+    };
+  }
 }
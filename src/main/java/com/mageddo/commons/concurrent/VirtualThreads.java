@@ -0,0 +1,35 @@
+package com.mageddo.commons.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual threads when the JVM has them, this is the fallback for older JVMs, creating daemon
+ * platform threads. The published jar carries a Java 21 version of this class under
+ * {@code META-INF/versions/21} which the newer JVMs load instead, local builds only have it when
+ * built with {@code -PmultiRelease}.
+ */
+public class VirtualThreads {
+
+  private VirtualThreads() {
+  }
+
+  public static boolean isSupported() {
+    return false;
+  }
+
+  /**
+   * @return threads named name-N.
+   */
+  public static ThreadFactory factory(String name) {
+    return Threads.daemonThreadFactory(name);
+  }
+
+  /**
+   * Starts a thread per task, here the idle ones are reused for a minute.
+   */
+  public static ExecutorService newThreadPerTaskExecutor(String name) {
+    return Executors.newCachedThreadPool(factory(name));
+  }
+}
@@ -0,0 +1,38 @@
+package com.mageddo.commons.concurrent.instrument;
+
+import lombok.Value;
+
+/**
+ * Snapshot of an {@link InstrumentedExecutorService}, the counters are since it was created.
+ */
+@Value
+public class ExecutorStats {
+
+  String name;
+
+  /**
+   * Tasks accepted by the executor, periodic ones count once.
+   */
+  long submittedCount;
+
+  /**
+   * Task runs finished, failed or not.
+   */
+  long completedCount;
+
+  long rejectedCount;
+
+  int activeCount;
+
+  /**
+   * Tasks waiting to start.
+   */
+  int queueSize;
+
+  /**
+   * Nanos from the submission, or from when it was due for scheduled tasks, until it started.
+   */
+  LogHistogram.Snapshot waitNanos;
+
+  LogHistogram.Snapshot runNanos;
+}
@@ -0,0 +1,165 @@
+package com.mageddo.commons.concurrent.instrument;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Publishes an executor stats on the platform MBean server as
+ * {@code com.mageddo.commons.concurrent:type=ExecutorStats,name=<name>}. A snapshot is shared by
+ * the attribute reads within {@link #SNAPSHOT_MAX_AGE}, so a console polling every attribute
+ * takes a single one.
+ */
+public class ExecutorStatsJmx implements ExecutorStatsMXBean {
+
+  public static final Duration SNAPSHOT_MAX_AGE = Duration.ofMillis(500);
+
+  private final Supplier<ExecutorStats> stats;
+  private final ObjectName objectName;
+  private volatile Sample last;
+
+  ExecutorStatsJmx(Supplier<ExecutorStats> stats, ObjectName objectName) {
+    this.stats = stats;
+    this.objectName = objectName;
+  }
+
+  /**
+   * Registers it under the executor name.
+   */
+  public static ExecutorStatsJmx register(InstrumentedExecutorService executor) {
+    return register(executor.getName(), executor::stats);
+  }
+
+  /**
+   * @throws IllegalStateException when the name is invalid or already registered.
+   */
+  public static ExecutorStatsJmx register(String name, Supplier<ExecutorStats> stats) {
+    try {
+      final ObjectName objectName = new ObjectName(String.format(
+          "com.mageddo.commons.concurrent:type=ExecutorStats,name=%s", ObjectName.quote(name)
+      ));
+      final ExecutorStatsJmx bean = new ExecutorStatsJmx(stats, objectName);
+      ManagementFactory
+          .getPlatformMBeanServer()
+          .registerMBean(bean, objectName);
+      return bean;
+    } catch (JMException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public void unregister() {
+    try {
+      ManagementFactory
+          .getPlatformMBeanServer()
+          .unregisterMBean(this.objectName);
+    } catch (JMException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public ObjectName getObjectName() {
+    return objectName;
+  }
+
+  /**
+   * Reuses the last snapshot while it's younger than {@link #SNAPSHOT_MAX_AGE}, concurrent
+   * reads may take one each.
+   */
+  ExecutorStats snapshot() {
+    final long now = System.nanoTime();
+    final Sample sample = this.last;
+    if (sample != null && now - sample.takenAt < SNAPSHOT_MAX_AGE.toNanos()) {
+      return sample.stats;
+    }
+    final ExecutorStats stats = this.stats.get();
+    this.last = new Sample(stats, now);
+    return stats;
+  }
+
+  @Override
+  public long getSubmittedCount() {
+    return this.snapshot()
+        .getSubmittedCount();
+  }
+
+  @Override
+  public long getCompletedCount() {
+    return this.snapshot()
+        .getCompletedCount();
+  }
+
+  @Override
+  public long getRejectedCount() {
+    return this.snapshot()
+        .getRejectedCount();
+  }
+
+  @Override
+  public int getActiveCount() {
+    return this.snapshot()
+        .getActiveCount();
+  }
+
+  @Override
+  public int getQueueSize() {
+    return this.snapshot()
+        .getQueueSize();
+  }
+
+  @Override
+  public double getWaitMeanNanos() {
+    return this.snapshot()
+        .getWaitNanos()
+        .getMean();
+  }
+
+  @Override
+  public long getWaitP99Nanos() {
+    return this.snapshot()
+        .getWaitNanos()
+        .getValueAtPercentile(99);
+  }
+
+  @Override
+  public long getWaitMaxNanos() {
+    return this.snapshot()
+        .getWaitNanos()
+        .getMax();
+  }
+
+  @Override
+  public double getRunMeanNanos() {
+    return this.snapshot()
+        .getRunNanos()
+        .getMean();
+  }
+
+  @Override
+  public long getRunP99Nanos() {
+    return this.snapshot()
+        .getRunNanos()
+        .getValueAtPercentile(99);
+  }
+
+  @Override
+  public long getRunMaxNanos() {
+    return this.snapshot()
+        .getRunNanos()
+        .getMax();
+  }
+
+  static class Sample {
+
+    final ExecutorStats stats;
+    final long takenAt;
+
+    Sample(ExecutorStats stats, long takenAt) {
+      this.stats = stats;
+      this.takenAt = takenAt;
+    }
+  }
+}
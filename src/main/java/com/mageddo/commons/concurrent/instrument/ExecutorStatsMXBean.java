@@ -0,0 +1,29 @@
+package com.mageddo.commons.concurrent.instrument;
+
+/**
+ * JMX view of {@link ExecutorStats}, see {@link ExecutorStatsJmx}.
+ */
+public interface ExecutorStatsMXBean {
+
+  long getSubmittedCount();
+
+  long getCompletedCount();
+
+  long getRejectedCount();
+
+  int getActiveCount();
+
+  int getQueueSize();
+
+  double getWaitMeanNanos();
+
+  long getWaitP99Nanos();
+
+  long getWaitMaxNanos();
+
+  double getRunMeanNanos();
+
+  long getRunP99Nanos();
+
+  long getRunMaxNanos();
+}
@@ -0,0 +1,191 @@
+package com.mageddo.commons.concurrent.instrument;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorates an executor recording how long the tasks waited to start and how long they ran,
+ * besides how many are running, waiting and were rejected. Recording takes two clock reads and
+ * a few uncontended atomic increments per task, see {@link #stats()} and {@link ExecutorStatsJmx}.
+ *
+ * @see com.mageddo.commons.concurrent.ThreadPool#instrumented(String, ExecutorService)
+ */
+public class InstrumentedExecutorService extends AbstractExecutorService {
+
+  private final String name;
+  private final ExecutorService delegate;
+  private final LongAdder submitted;
+  private final LongAdder started;
+  private final LongAdder completed;
+  private final LongAdder rejected;
+  private final AtomicInteger active;
+  private final LogHistogram waits;
+  private final LogHistogram runs;
+
+  public InstrumentedExecutorService(String name, ExecutorService delegate) {
+    this.name = name;
+    this.delegate = delegate;
+    this.submitted = new LongAdder();
+    this.started = new LongAdder();
+    this.completed = new LongAdder();
+    this.rejected = new LongAdder();
+    this.active = new AtomicInteger();
+    this.waits = new LogHistogram();
+    this.runs = new LogHistogram();
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    final long now = System.nanoTime();
+    this.submitting(() -> {
+      this.delegate.execute(() -> this.run(command, now));
+      return null;
+    });
+  }
+
+  public ExecutorStats stats() {
+    return new ExecutorStats(
+        this.name,
+        this.submitted.sum(),
+        this.completed.sum(),
+        this.rejected.sum(),
+        this.active.get(),
+        this.queueSize(),
+        this.waits.snapshot(),
+        this.runs.snapshot()
+    );
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public ExecutorService getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public void shutdown() {
+    this.delegate.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return this.delegate.shutdownNow();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return this.delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return this.delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return this.delegate.awaitTermination(timeout, unit);
+  }
+
+  /**
+   * Counts the submission, or the rejection when the delegate throws it.
+   */
+  <T> T submitting(SubmitAction<T> action) {
+    this.submitted.increment();
+    try {
+      return action.submit();
+    } catch (RejectedExecutionException e) {
+      this.submitted.decrement();
+      this.rejected.increment();
+      throw e;
+    }
+  }
+
+  /**
+   * @param dueAt nanos since when the task could have started.
+   */
+  void run(Runnable command, long dueAt) {
+    final long startedAt = this.started(dueAt);
+    try {
+      command.run();
+    } finally {
+      this.finished(startedAt);
+    }
+  }
+
+  <V> V call(Callable<V> callable, long dueAt) throws Exception {
+    final long startedAt = this.started(dueAt);
+    try {
+      return callable.call();
+    } finally {
+      this.finished(startedAt);
+    }
+  }
+
+  private long started(long dueAt) {
+    final long now = System.nanoTime();
+    this.waits.record(now - dueAt);
+    this.started.increment();
+    this.active.incrementAndGet();
+    return now;
+  }
+
+  private void finished(long startedAt) {
+    this.active.decrementAndGet();
+    this.runs.record(System.nanoTime() - startedAt);
+    this.completed.increment();
+  }
+
+  /**
+   * Asks the pools which have a queue, otherwise estimates from the submitted and started tasks.
+   * Scheduled tasks only count once they are due, an idle scheduler thread takes them right
+   * away, so its queue, copied under the scheduler lock, is only walked when every thread is
+   * busy.
+   */
+  private int queueSize() {
+    if (this.delegate instanceof ScheduledThreadPoolExecutor) {
+      final ScheduledThreadPoolExecutor pool = (ScheduledThreadPoolExecutor) this.delegate;
+      if (this.active.get() < pool.getCorePoolSize()) {
+        return 0;
+      }
+      int due = 0;
+      for (final Runnable task : pool.getQueue()) {
+        if (!(task instanceof Delayed) || ((Delayed) task).getDelay(TimeUnit.NANOSECONDS) <= 0) {
+          due++;
+        }
+      }
+      return due;
+    }
+    if (this.delegate instanceof ThreadPoolExecutor) {
+      return ((ThreadPoolExecutor) this.delegate).getQueue()
+          .size();
+    }
+    if (this.delegate instanceof ForkJoinPool) {
+      final ForkJoinPool pool = (ForkJoinPool) this.delegate;
+      return (int) Math.min(
+          Integer.MAX_VALUE, pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount()
+      );
+    }
+    return (int) Math.max(0, Math.min(
+        Integer.MAX_VALUE, this.submitted.sum() - this.started.sum()
+    ));
+  }
+
+  @FunctionalInterface
+  interface SubmitAction<T> {
+
+    T submit();
+  }
+}
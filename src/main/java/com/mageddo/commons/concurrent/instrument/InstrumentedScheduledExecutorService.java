@@ -0,0 +1,90 @@
+package com.mageddo.commons.concurrent.instrument;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link InstrumentedExecutorService} of a scheduler, the wait of a scheduled task counts from
+ * when it was due, so it tells how late the runs are, every run of a periodic task is recorded.
+ */
+public class InstrumentedScheduledExecutorService extends InstrumentedExecutorService
+    implements ScheduledExecutorService {
+
+  private final ScheduledExecutorService delegate;
+
+  public InstrumentedScheduledExecutorService(String name, ScheduledExecutorService delegate) {
+    super(name, delegate);
+    this.delegate = delegate;
+  }
+
+  @Override
+  public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+    final long dueAt = System.nanoTime() + unit.toNanos(delay);
+    return this.submitting(() -> this.delegate.schedule(
+        () -> this.run(command, dueAt), delay, unit
+    ));
+  }
+
+  @Override
+  public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+    final long dueAt = System.nanoTime() + unit.toNanos(delay);
+    return this.submitting(() -> this.delegate.schedule(
+        () -> this.call(callable, dueAt), delay, unit
+    ));
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleAtFixedRate(
+      Runnable command, long initialDelay, long period, TimeUnit unit
+  ) {
+    final Periodic task = new Periodic(
+        command, System.nanoTime() + unit.toNanos(initialDelay), unit.toNanos(period), true
+    );
+    return this.submitting(() -> this.delegate.scheduleAtFixedRate(
+        task, initialDelay, period, unit
+    ));
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleWithFixedDelay(
+      Runnable command, long initialDelay, long delay, TimeUnit unit
+  ) {
+    final Periodic task = new Periodic(
+        command, System.nanoTime() + unit.toNanos(initialDelay), unit.toNanos(delay), false
+    );
+    return this.submitting(() -> this.delegate.scheduleWithFixedDelay(
+        task, initialDelay, delay, unit
+    ));
+  }
+
+  /**
+   * Tracks when the next run is due, the runs of a periodic task never overlap.
+   */
+  class Periodic implements Runnable {
+
+    private final Runnable command;
+    private final long period;
+    private final boolean fixedRate;
+    private long dueAt;
+
+    Periodic(Runnable command, long dueAt, long period, boolean fixedRate) {
+      this.command = command;
+      this.dueAt = dueAt;
+      this.period = period;
+      this.fixedRate = fixedRate;
+    }
+
+    @Override
+    public void run() {
+      try {
+        InstrumentedScheduledExecutorService.this.run(this.command, this.dueAt);
+      } finally {
+        this.dueAt = this.fixedRate
+            ? this.dueAt + this.period
+            : System.nanoTime() + this.period;
+      }
+    }
+  }
+}
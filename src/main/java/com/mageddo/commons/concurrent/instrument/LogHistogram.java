@@ -0,0 +1,118 @@
+package com.mageddo.commons.concurrent.instrument;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of non negative longs, like nanos, with log-linear buckets as the
+ * HdrHistogram ones: each power of two range is split in {@link #SUB_BUCKETS} equal buckets, so
+ * any value is counted within 12.5% of its real value using a few KB, whatever the range.
+ */
+public class LogHistogram {
+
+  static final int SUB_BUCKET_BITS = 3;
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  static final int BUCKETS = bucketOf(Long.MAX_VALUE) + 1;
+
+  private final AtomicLongArray counts;
+  private final LongAdder sum;
+  private final LongAccumulator max;
+
+  public LogHistogram() {
+    this.counts = new AtomicLongArray(BUCKETS);
+    this.sum = new LongAdder();
+    this.max = new LongAccumulator(Math::max, 0);
+  }
+
+  /**
+   * Negative values are counted as zero.
+   */
+  public void record(long value) {
+    final long v = Math.max(0, value);
+    this.counts.incrementAndGet(bucketOf(v));
+    this.sum.add(v);
+    this.max.accumulate(v);
+  }
+
+  /**
+   * Copies the counts, records happening meanwhile may be partially seen.
+   */
+  public Snapshot snapshot() {
+    final long[] counts = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = this.counts.get(i);
+      count += counts[i];
+    }
+    return new Snapshot(counts, count, this.sum.sum(), this.max.get());
+  }
+
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    final int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * Highest value counted on the bucket.
+   */
+  static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    final int shift = bucket / SUB_BUCKETS - 1;
+    final long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lower + (1L << shift) - 1;
+  }
+
+  public static class Snapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    Snapshot(long[] counts, long count, long sum, long max) {
+      this.counts = counts;
+      this.count = count;
+      this.sum = sum;
+      this.max = max;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    public double getMean() {
+      return this.count == 0 ? 0.0 : (double) this.sum / this.count;
+    }
+
+    /**
+     * @param percentile from 0 to 100.
+     * @return the upper bound of the bucket holding the value at that rank, never above the max,
+     * zero when nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+      if (this.count == 0) {
+        return 0;
+      }
+      final long rank = Math.max(1, (long) Math.ceil(this.count * percentile / 100.0));
+      long seen = 0;
+      for (int i = 0; i < this.counts.length; i++) {
+        seen += this.counts[i];
+        if (seen >= rank) {
+          return Math.min(upperBoundOf(i), this.max);
+        }
+      }
+      return this.max;
+    }
+  }
+}
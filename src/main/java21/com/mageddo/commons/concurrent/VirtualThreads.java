@@ -0,0 +1,36 @@
+package com.mageddo.commons.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Java 21 version of this class, packaged under {@code META-INF/versions/21}, backed by virtual
+ * threads, so blocking tasks don't hold platform threads.
+ */
+public class VirtualThreads {
+
+  private VirtualThreads() {
+  }
+
+  public static boolean isSupported() {
+    return true;
+  }
+
+  /**
+   * @return virtual threads named name-N.
+   */
+  public static ThreadFactory factory(String name) {
+    return Thread
+        .ofVirtual()
+        .name(name + "-", 0)
+        .factory();
+  }
+
+  /**
+   * Starts a new virtual thread per task, they are cheap, so they are never reused.
+   */
+  public static ExecutorService newThreadPerTaskExecutor(String name) {
+    return Executors.newThreadPerTaskExecutor(factory(name));
+  }
+}
@@ -0,0 +1,64 @@
+package com.mageddo.commons.caching;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mageddo.commons.concurrent.Threads;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AsyncCacheTest {
+
+  @Test
+  void mustShareTheInFlightFutureBetweenCallers() {
+
+    // arrange
+    final var cache = new AsyncCache(new LruTTLCache(Duration.ofSeconds(10)));
+    final var counter = new AtomicInteger();
+
+    // act
+    final var first = cache.<String>getAsync("key", (k, executor) -> {
+      counter.incrementAndGet();
+      return CompletableFuture.supplyAsync(() -> {
+        Threads.sleep(200);
+        return "a value";
+      }, executor);
+    });
+    final var second = cache.<String>getAsync("key", (k, executor) -> {
+      counter.incrementAndGet();
+      return CompletableFuture.completedFuture("another value");
+    });
+
+    // assert
+    assertSame(first, second);
+    assertEquals("a value", second.join());
+    assertEquals(1, counter.get());
+  }
+
+  @Test
+  void mustRemoveFailedFutures() {
+
+    // arrange
+    final var cache = new AsyncCache(new LruTTLCache(Duration.ofSeconds(10)));
+
+    // act
+    final var failed = cache.<String>getAsync("key", (k, executor) -> {
+      throw new IllegalStateException("failed");
+    });
+
+    // assert
+    assertThrows(CompletionException.class, failed::join);
+    assertNull(cache.getIfPresent("key"));
+    assertEquals(
+        "a value",
+        cache.<String>getAsync("key", (k, e) -> CompletableFuture.completedFuture("a value")).join()
+    );
+  }
+}
@@ -0,0 +1,71 @@
+package com.mageddo.commons.caching;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CacheTest {
+
+  @Test
+  void mustProvideBulkOperationsToImplementationsOfTheBaseMethods() {
+    // arrange
+    final var cache = new MapCache();
+    cache.computeIfAbsent("a", k -> 1);
+
+    // act
+    final var loaded = cache.computeAllIfAbsent(List.of("a", "b"), missing -> {
+      assertEquals(Set.of("b"), missing);
+      return Map.of("b", 2);
+    });
+
+    // assert
+    assertEquals(Map.of("a", 1, "b", 2), loaded);
+    assertEquals(Map.of("b", 2), cache.getAll(List.of("b", "c")));
+  }
+
+  /**
+   * Implements only the methods the interface had before the bulk ones.
+   */
+  static class MapCache implements Cache {
+
+    private final Map<String, Object> store = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean containsKey(String key) {
+      return this.store.containsKey(key);
+    }
+
+    @Override
+    public <T> T get(String k) {
+      return (T) this.store.get(k);
+    }
+
+    @Override
+    public <T> T get(String k, T def) {
+      return (T) this.store.getOrDefault(k, def);
+    }
+
+    @Override
+    public <T> T computeIfAbsent(
+        String key, Function<? super String, ? extends T> mappingFunction
+    ) {
+      return (T) this.store.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public void clear() {
+      this.store.clear();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return this.store.isEmpty();
+    }
+  }
+}
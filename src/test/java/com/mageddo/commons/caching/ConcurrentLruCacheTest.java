@@ -0,0 +1,73 @@
+package com.mageddo.commons.caching;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mageddo.commons.concurrent.ThreadPool;
+import com.mageddo.commons.concurrent.Threads;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentLruCacheTest {
+
+  @Test
+  void mustSplitCapacityAcrossSegments() {
+    // arrange
+    final var cache = new ConcurrentLruCache(10, 4);
+
+    // act
+    for (int i = 0; i < 100; i++) {
+      cache.computeIfAbsent(String.valueOf(i), k -> k);
+    }
+
+    // assert
+    assertTrue(cache.getSize() <= 10, String.valueOf(cache.getSize()));
+    assertFalse(cache.isEmpty());
+  }
+
+  @Test
+  void mustEvictLeastRecentlyUsedOfTheSegment() {
+    // arrange
+    final var cache = new ConcurrentLruCache(2, 1);
+    cache.computeIfAbsent("key1", k -> true);
+    cache.computeIfAbsent("key2", k -> true);
+
+    // act
+    cache.get("key1");
+    cache.computeIfAbsent("key3", k -> true);
+
+    // assert
+    assertTrue(cache.containsKey("key1"));
+    assertFalse(cache.containsKey("key2"));
+  }
+
+  @Test
+  void mustComputeUnrelatedKeysInParallel() {
+    // arrange
+    final var cache = new ConcurrentLruCache(100);
+    final var counter = new AtomicInteger();
+    final var sleepTime = 300;
+    final var stopWatch = StopWatch.createStarted();
+    final ExecutorService pool = ThreadPool.newFixed(10);
+
+    // act
+    for (final var key : new String[]{"a", "b", "c", "d", "a"}) {
+      pool.submit(() -> cache.computeIfAbsent(key, k -> {
+        counter.incrementAndGet();
+        Threads.sleep(sleepTime);
+        return k;
+      }));
+    }
+
+    // assert
+    ThreadPool.terminateAndWait(pool, Duration.ofSeconds(10));
+    assertEquals(4, counter.get());
+    assertTrue(stopWatch.getTime() < sleepTime * 2, String.valueOf(stopWatch.getTime()));
+  }
+}
@@ -0,0 +1,134 @@
+package com.mageddo.commons.caching;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongCacheTest {
+
+  @Test
+  void mustEvictLeastRecentlyUsed() {
+    // arrange
+    final var cache = LongCache
+        .<String>builder()
+        .capacity(2)
+        .ttl(Duration.ofHours(1))
+        .segments(1)
+        .build();
+    cache.put(1L, "one");
+    cache.put(2L, "two");
+
+    // act
+    cache.get(1L);
+    cache.put(3L, "three");
+
+    // assert
+    assertTrue(cache.containsKey(1L));
+    assertFalse(cache.containsKey(2L));
+    assertEquals("three", cache.get(3L));
+    assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  void mustExpireEntries() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var cache = LongCache
+        .<String>builder()
+        .capacity(10)
+        .ttl(Duration.ofSeconds(10))
+        .ticker(ticker)
+        .build();
+    cache.put(1L, "one");
+    ticker.advance(Duration.ofSeconds(5));
+    cache.put(2L, null);
+
+    // act
+    ticker.advance(Duration.ofSeconds(6));
+    cache.cleanUp();
+
+    // assert
+    assertEquals(1, cache.getSize());
+    assertFalse(cache.containsKey(1L));
+    assertTrue(cache.containsKey(2L));
+    assertNull(cache.get(2L, "default"));
+  }
+
+  @Test
+  void mustSaturateHugeTtlsAndExpireNegativeOnes() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var forever = LongCache
+        .<String>builder()
+        .capacity(10)
+        .ttl(ChronoUnit.FOREVER.getDuration())
+        .ticker(ticker)
+        .build();
+    final var expired = LongCache
+        .<String>builder()
+        .capacity(10)
+        .ttl(Duration.ofSeconds(-1))
+        .ticker(ticker)
+        .build();
+
+    // act
+    forever.put(1L, "one");
+    expired.put(1L, "one");
+    ticker.advance(Duration.ofDays(365 * 200L));
+
+    // assert
+    assertEquals("one", forever.get(1L));
+    assertFalse(expired.containsKey(1L));
+  }
+
+  @Test
+  void mustComputeOnlyWhenAbsent() {
+    // arrange
+    final var cache = new IntCache<String>(10, Duration.ofHours(1));
+
+    // act
+    final var v1 = cache.computeIfAbsent(1, String::valueOf);
+    final var v2 = cache.computeIfAbsent(1, k -> "other");
+
+    // assert
+    assertEquals("1", v1);
+    assertEquals("1", v2);
+  }
+
+  @Test
+  void mustBehaveLikeAMapWhileUnderCapacity() {
+    // arrange
+    final var random = new Random(1);
+    final var cache = LongCache
+        .<Long>builder()
+        .capacity(1000)
+        .ttl(Duration.ofHours(1))
+        .segments(1)
+        .build();
+    final var expected = new HashMap<Long, Long>();
+
+    // act
+    for (int i = 0; i < 100_000; i++) {
+      final long key = random.nextInt(1000) * 0x9E3779B97F4A7C15L;
+      if (random.nextInt(3) == 0) {
+        cache.remove(key);
+        expected.remove(key);
+      } else {
+        cache.put(key, (long) i);
+        expected.put(key, (long) i);
+      }
+    }
+
+    // assert
+    assertEquals(expected.size(), cache.getSize());
+    expected.forEach((k, v) -> assertEquals(v, cache.get(k)));
+  }
+}
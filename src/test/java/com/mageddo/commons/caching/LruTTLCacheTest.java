@@ -1,22 +1,32 @@
 package com.mageddo.commons.caching;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.mageddo.commons.concurrent.ThreadPool;
 import com.mageddo.commons.concurrent.Threads;
+import com.mageddo.commons.lang.tuple.Pair;
 
 import org.apache.commons.lang3.time.StopWatch;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import lombok.extern.slf4j.Slf4j;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @Slf4j
@@ -173,6 +183,309 @@ class LruTTLCacheTest {
     assertEquals(1, cache.getSize());
   }
 
+  @Test
+  void mustEvictLeastRecentlyUsed() {
+    // arrange
+    final var cache = new LruTTLCache(2, Duration.ofHours(1));
+    cache.computeIfAbsent("key1", s -> true);
+    cache.computeIfAbsent("key2", s -> true);
+
+    // act
+    cache.get("key1");
+    cache.computeIfAbsent("key3", s -> true);
+
+    // assert
+    assertEquals("[key1, key3]", new TreeSet<>(cache.asMap().keySet()).toString());
+  }
+
+  @Test
+  void mustKeepFrequentlyUsedKeysWhenScanningUsingTinyLfu() {
+    // arrange
+    final var cache = LruTTLCache
+        .builder()
+        .capacity(100)
+        .ttl(Duration.ofHours(1))
+        .evictionMode(EvictionMode.TINY_LFU)
+        .build();
+    for (int i = 0; i < 50; i++) {
+      final var key = "hot" + i;
+      cache.computeIfAbsent(key, s -> true);
+      for (int j = 0; j < 5; j++) {
+        cache.get(key);
+      }
+    }
+
+    // act
+    for (int i = 0; i < 1000; i++) {
+      cache.computeIfAbsent("scan" + i, s -> true);
+    }
+
+    // assert
+    assertEquals(100, cache.getSize());
+    for (int i = 0; i < 50; i++) {
+      assertTrue(cache.containsKey("hot" + i), "hot" + i);
+    }
+  }
+
+  @Test
+  void mustRespectCapacityWithConcurrentReadsAndWrites() {
+    // arrange
+    final var cache = new LruTTLCache(50, Duration.ofHours(1));
+    final var pool = createPool();
+
+    // act
+    for (int i = 0; i < 10_000; i++) {
+      final var key = String.valueOf(i % 200);
+      pool.submit(() -> {
+        cache.get(key);
+        cache.computeIfAbsent(key, k -> true);
+      });
+    }
+
+    // assert
+    waitTermination(pool);
+    assertTrue(cache.getSize() <= 50, String.valueOf(cache.getSize()));
+  }
+
+  @Test
+  void mustRemoveExpiredEntriesWithDifferentTTLs() {
+    // arrange
+    final var cache = new LruTTLCache(100, Duration.ofHours(1));
+    cache.computeIfAbsentWithTTL("key1", s -> Pair.of(true, Duration.ofMillis(100)));
+    cache.computeIfAbsentWithTTL("key2", s -> Pair.of(true, Duration.ofHours(1)));
+    cache.computeIfAbsentWithTTL("key3", s -> Pair.of(true, Duration.ofMillis(50)));
+
+    // act
+    Threads.sleep(150);
+    cache.computeIfAbsent("key4", s -> true);
+
+    // assert
+    assertEquals("[key2, key4]", new TreeSet<>(cache.asMap().keySet()).toString());
+  }
+
+  @Test
+  void mustExpireManyDistinctTTLsInDeadlineOrder() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var cache = LruTTLCache
+        .builder()
+        .ttl(Duration.ofHours(1))
+        .ticker(ticker)
+        .build();
+
+    // act
+    assertTimeout(Duration.ofSeconds(5), () -> {
+      for (int i = 1; i <= 50_000; i++) {
+        final var ttl = Duration.ofMillis(i * 7L);
+        cache.computeIfAbsentWithTTL(String.valueOf(i), s -> Pair.of(true, ttl));
+      }
+    });
+    ticker.advance(Duration.ofMillis(7 * 25_000L + 1));
+    cache.cleanUp();
+
+    // assert
+    assertEquals(25_000, cache.getSize());
+    assertFalse(cache.containsKey("25000"));
+    assertTrue(cache.containsKey("25001"));
+  }
+
+  @Test
+  void mustSweepExpiredEntriesInBackgroundWhenUsingTimerWheel() {
+    // arrange
+    final var cache = LruTTLCache
+        .builder()
+        .ttl(Duration.ofMillis(50))
+        .timerWheelTick(Duration.ofMillis(10))
+        .build();
+    cache.computeIfAbsent("key1", s -> true);
+    cache.computeIfAbsentWithTTL("key2", s -> Pair.of(true, Duration.ofMillis(100)));
+    cache.computeIfAbsentWithTTL("key3", s -> Pair.of(true, Duration.ofHours(1)));
+
+    // act
+    Threads.sleep(200);
+
+    // assert
+    assertEquals("[key3]", new TreeSet<>(cache.asMap().keySet()).toString());
+  }
+
+  @Test
+  void mustExpireUsingTheConfiguredTicker() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var cache = LruTTLCache
+        .builder()
+        .ttl(Duration.ofMinutes(5))
+        .ticker(ticker)
+        .build();
+    cache.computeIfAbsent("key1", s -> true);
+
+    // act
+    ticker.advance(Duration.ofMinutes(4));
+    final var beforeExpiring = cache.containsKey("key1");
+    ticker.advance(Duration.ofMinutes(2));
+
+    // assert
+    assertTrue(beforeExpiring);
+    assertFalse(cache.containsKey("key1"));
+  }
+
+  @Test
+  void mustReturnDefaultValueWhenEntryHasExpired() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var cache = LruTTLCache
+        .builder()
+        .ttl(Duration.ofMinutes(5))
+        .ticker(ticker)
+        .build();
+    cache.computeIfAbsent("key1", s -> "a value");
+
+    // act
+    ticker.advance(Duration.ofMinutes(6));
+    final String v = cache.get("key1", "default");
+
+    // assert
+    assertEquals("default", v);
+    assertTrue(cache.isEmpty());
+  }
+
+  @Test
+  void mustReturnCurrentValueAndRefreshInBackgroundAfterRefreshTime() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var counter = new AtomicInteger();
+    final var cache = LruTTLCache
+        .builder()
+        .ttl(Duration.ofMinutes(10))
+        .refreshAfter(Duration.ofMinutes(1))
+        .ticker(ticker)
+        .executor(Runnable::run)
+        .build();
+    cache.computeIfAbsent("key1", s -> counter.incrementAndGet());
+
+    // act
+    ticker.advance(Duration.ofMinutes(2));
+    final Integer stale = cache.computeIfAbsent("key1", s -> counter.incrementAndGet());
+    final Integer refreshed = cache.computeIfAbsent("key1", s -> counter.incrementAndGet());
+
+    // assert
+    assertEquals(1, stale);
+    assertEquals(2, refreshed);
+    assertEquals(2, counter.get());
+  }
+
+  @Test
+  void mustKeepReturningTheCurrentValueWhenTheRefreshIsRejected() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var cache = LruTTLCache
+        .builder()
+        .ttl(Duration.ofMinutes(10))
+        .refreshAfter(Duration.ofMinutes(1))
+        .ticker(ticker)
+        .executor(task -> {
+          throw new RejectedExecutionException("shut down");
+        })
+        .build();
+    cache.computeIfAbsent("key1", s -> 1);
+    ticker.advance(Duration.ofMinutes(2));
+
+    // act
+    final Integer stale = cache.computeIfAbsent("key1", s -> 2);
+    final Integer again = cache.computeIfAbsent("key1", s -> 2);
+
+    // assert
+    assertEquals(1, stale);
+    assertEquals(1, again);
+  }
+
+  @Test
+  void mustLoadOnlyTheMissingKeysInASingleCall() {
+    // arrange
+    final var cache = new LruTTLCache(Duration.ofMinutes(1));
+    final var calls = new ArrayList<Set<String>>();
+    cache.put("key1", "cached");
+
+    // act
+    final Map<String, String> values = cache.computeAllIfAbsent(
+        List.of("key1", "key2", "key3"),
+        keys -> {
+          calls.add(new TreeSet<>(keys));
+          return Map.of("key2", "loaded");
+        }
+    );
+
+    // assert
+    assertEquals("[[key2, key3]]", calls.toString());
+    assertEquals("{key1=cached, key2=loaded}", values.toString());
+    assertEquals("[key1, key2]", new TreeSet<>(cache.asMap().keySet()).toString());
+  }
+
+  @Test
+  void mustEvictWhenOverTheMaximumWeight() {
+    // arrange
+    final var cache = LruTTLCache
+        .builder()
+        .ttl(Duration.ofHours(1))
+        .maximumWeight(10L)
+        .weigher((k, v) -> ((String) v).length())
+        .build();
+
+    // act
+    cache.put("key1", "aaaa");
+    cache.put("key2", "bbbb");
+    cache.put("key3", "cccc");
+
+    // assert
+    assertEquals("[key2, key3]", new TreeSet<>(cache.asMap().keySet()).toString());
+    assertEquals(8, cache.getWeightedSize());
+  }
+
+  @Test
+  void mustOnlyWeighTheMappedEntryWhenTheSameKeyIsWrittenConcurrently() {
+    // arrange
+    final var cache = LruTTLCache
+        .builder()
+        .ttl(Duration.ofHours(1))
+        .maximumWeight(1000L)
+        .weigher((k, v) -> 1)
+        .build();
+    final var pool = createPool();
+
+    // act
+    for (int i = 0; i < 10_000; i++) {
+      final var key = String.valueOf(i % 5);
+      final var value = i;
+      pool.submit(() -> cache.put(key, value));
+    }
+
+    // assert
+    waitTermination(pool);
+    assertEquals(5, cache.getSize());
+    assertEquals(5, cache.getWeightedSize());
+  }
+
+  @Test
+  void mustDiscountTheWeightOfEntriesFoundExpiredWhenRead() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var cache = LruTTLCache
+        .builder()
+        .ttl(Duration.ofSeconds(10))
+        .maximumWeight(10L)
+        .weigher((k, v) -> ((String) v).length())
+        .ticker(ticker)
+        .build();
+    cache.put("key1", "aaaa");
+    ticker.advance(Duration.ofSeconds(11));
+
+    // act
+    final String found = cache.get("key1");
+
+    // assert
+    assertNull(found);
+    assertEquals(0, cache.getWeightedSize());
+  }
 
   @Test
   void mustRemoveExpired() {
@@ -245,6 +558,189 @@ class LruTTLCacheTest {
 
   }
 
+  @Test
+  void mustRestoreSnapshotKeepingTheEvictionOrder(@TempDir Path dir) {
+    // arrange
+    final var file = dir.resolve("cache.snapshot");
+    final var cache = new LruTTLCache(3, Duration.ofHours(1));
+    cache.put("key1", "value1");
+    cache.put("key2", null);
+    cache.put("key3", List.of(3));
+    cache.get("key1");
+    cache.cleanUp();
+
+    // act
+    cache.snapshot(file);
+    final var restored = new LruTTLCache(2, Duration.ofSeconds(1));
+    final var count = restored.restore(file);
+
+    // assert
+    assertEquals(3, count);
+    assertEquals("[key1, key3]", new TreeSet<>(restored.asMap()
+        .keySet()).toString());
+    assertEquals("value1", restored.get("key1"));
+    assertEquals(List.of(3), restored.get("key3"));
+    assertEquals(Duration.ofHours(1), restored.asMap()
+        .get("key1")
+        .getTtl());
+  }
+
+  @Test
+  void mustSkipEntriesExpiredWhileOnDisk(@TempDir Path dir) {
+    // arrange
+    final var file = dir.resolve("cache.snapshot");
+    final var cache = new LruTTLCache(Duration.ofHours(1));
+    cache.put("key1", "value1");
+    cache.computeIfAbsentWithTTL("key2", k -> Pair.of("value2", Duration.ofMillis(50)));
+    cache.snapshot(file, Serializer.utf8());
+
+    // act
+    Threads.sleep(100);
+    final var restored = new LruTTLCache(Duration.ofHours(1));
+    restored.restore(file, Serializer.utf8());
+
+    // assert
+    assertEquals("value1", restored.get("key1"));
+    assertFalse(restored.containsKey("key2"));
+  }
+
+  @Test
+  void mustDeleteTheTemporaryFileWhenTheSnapshotFails(@TempDir Path dir) throws Exception {
+    // arrange
+    final var file = dir.resolve("cache.snapshot");
+    final var cache = new LruTTLCache(Duration.ofHours(1));
+    cache.put("key1", "value1");
+    final Serializer<String> failing = new Serializer<>() {
+      @Override
+      public byte[] serialize(String value) {
+        throw new IllegalStateException("can't serialize " + value);
+      }
+
+      @Override
+      public String deserialize(byte[] bytes) {
+        throw new UnsupportedOperationException();
+      }
+    };
+
+    // act
+    assertThrows(IllegalStateException.class, () -> cache.snapshot(file, failing));
+
+    // assert
+    try (final var files = Files.list(dir)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  void mustNotifyRemovalsInBatchesOnTheExecutor() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var tasks = new ArrayList<Runnable>();
+    final var removals = new ArrayList<String>();
+    final var cache = LruTTLCache
+        .builder()
+        .capacity(2)
+        .ttl(Duration.ofSeconds(10))
+        .ticker(ticker)
+        .executor(tasks::add)
+        .removalListener((key, value, cause) -> removals.add(key + "=" + value + ":" + cause))
+        .build();
+    cache.put("a", 1);
+    cache.put("b", 2);
+
+    // act
+    cache.put("a", 3);
+    cache.put("c", 4);
+    cache.remove("c");
+    ticker.advance(Duration.ofSeconds(11));
+    cache.cleanUp();
+    assertTrue(removals.isEmpty());
+    tasks.forEach(Runnable::run);
+
+    // assert
+    assertEquals(1, tasks.size());
+    assertEquals(List.of("a=1:REPLACED", "b=2:SIZE", "c=4:EXPLICIT", "a=3:EXPIRED"), removals);
+  }
+
+  @Test
+  void mustSlideExpirationWhenReadUsingExpiryAfterAccess() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var cache = LruTTLCache
+        .builder()
+        .ticker(ticker)
+        .expiry(Expiry.afterAccess(Duration.ofSeconds(10)))
+        .build();
+    cache.put("session", 1);
+    cache.put("idle", 2);
+
+    // act
+    for (int i = 0; i < 5; i++) {
+      ticker.advance(Duration.ofSeconds(6));
+      assertEquals(1, (int) cache.get("session"));
+    }
+    cache.cleanUp();
+
+    // assert
+    assertTrue(cache.containsKey("session"));
+    assertFalse(cache.asMap()
+        .containsKey("idle"));
+  }
+
+  @Test
+  void mustChooseTheTtlOnCreateAndUpdate() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var cache = LruTTLCache
+        .builder()
+        .ticker(ticker)
+        .expiry(new Expiry<>() {
+          @Override
+          public Duration expireAfterCreate(String key, Object value) {
+            return Duration.ofSeconds(10);
+          }
+
+          @Override
+          public Duration expireAfterUpdate(String key, Object value, Duration remaining) {
+            return remaining.plusSeconds(10);
+          }
+        })
+        .build();
+    cache.put("a", 1);
+    ticker.advance(Duration.ofSeconds(5));
+
+    // act
+    cache.put("a", 2);
+    ticker.advance(Duration.ofSeconds(14));
+    final Integer beforeExpiring = cache.get("a");
+    ticker.advance(Duration.ofSeconds(2));
+
+    // assert
+    assertEquals(2, beforeExpiring);
+    assertFalse(cache.containsKey("a"));
+  }
+
+  @Test
+  void mustPutWithItsOwnTtl() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var cache = LruTTLCache
+        .builder()
+        .ttl(Duration.ofSeconds(10))
+        .ticker(ticker)
+        .build();
+
+    // act
+    cache.put("short", 1, Duration.ofSeconds(1));
+    cache.put("long", 2, Duration.ofMinutes(1));
+    cache.put("default", 3);
+    ticker.advance(Duration.ofSeconds(30));
+    cache.cleanUp();
+
+    // assert
+    assertEquals(Set.of("long"), cache.asMap()
+        .keySet());
+  }
 
   static ExecutorService createPool() {
     return ThreadPool.newFixed(10);
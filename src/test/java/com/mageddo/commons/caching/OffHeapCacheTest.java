@@ -0,0 +1,258 @@
+package com.mageddo.commons.caching;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapCacheTest {
+
+  @Test
+  void mustStoreAndReadValues() {
+    // arrange
+    final var cache = new OffHeapCache(1 << 24, Duration.ofHours(1));
+
+    // act
+    cache.put("key1", "value1");
+    cache.put("key2", List.of(1, 2, 3));
+    cache.put("key3", null);
+    cache.put("key1", "value1 replaced");
+
+    // assert
+    assertEquals("value1 replaced", cache.get("key1"));
+    assertEquals(List.of(1, 2, 3), cache.get("key2"));
+    assertTrue(cache.containsKey("key3"));
+    assertNull(cache.get("key3", "default"));
+    assertEquals("default", cache.get("key4", "default"));
+    assertEquals(3, cache.getSize());
+  }
+
+  @Test
+  void mustRemoveAndClear() {
+    // arrange
+    final var cache = new OffHeapCache(1 << 24, Duration.ofHours(1));
+    cache.putAll(Map.of("key1", 1, "key2", 2, "key3", 3));
+
+    // act
+    cache.remove("key1");
+
+    // assert
+    assertFalse(cache.containsKey("key1"));
+    assertEquals(2, cache.getSize());
+
+    cache.clear();
+    assertTrue(cache.isEmpty());
+    cache.put("key1", 4);
+    assertEquals(4, (int) cache.get("key1"));
+  }
+
+  @Test
+  void mustExpireEntries() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var cache = OffHeapCache
+        .builder()
+        .maximumBytes(1 << 20)
+        .ttl(Duration.ofSeconds(10))
+        .ticker(ticker)
+        .build();
+    cache.put("key1", "value1");
+
+    // act
+    ticker.advance(Duration.ofSeconds(11));
+
+    // assert
+    assertFalse(cache.containsKey("key1"));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void mustCheckPresenceWithoutDeserializing() {
+    // arrange
+    final var deserialized = new AtomicInteger();
+    final var cache = OffHeapCache
+        .builder()
+        .maximumBytes(1 << 20)
+        .ttl(Duration.ofHours(1))
+        .serializer(new Serializer<String>() {
+          @Override
+          public byte[] serialize(String value) {
+            return Serializer.utf8()
+                .serialize(value);
+          }
+
+          @Override
+          public String deserialize(byte[] bytes) {
+            deserialized.incrementAndGet();
+            return Serializer.utf8()
+                .deserialize(bytes);
+          }
+        })
+        .build();
+    cache.put("key1", "value1");
+
+    // act
+    final var found = cache.containsKey("key1");
+
+    // assert
+    assertTrue(found);
+    assertFalse(cache.containsKey("key2"));
+    assertEquals(0, deserialized.get());
+  }
+
+  @Test
+  void mustSaturateHugeTtlsAndExpireNegativeOnes() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var forever = OffHeapCache
+        .builder()
+        .maximumBytes(1 << 20)
+        .ttl(ChronoUnit.FOREVER.getDuration())
+        .ticker(ticker)
+        .build();
+    final var expired = OffHeapCache
+        .builder()
+        .maximumBytes(1 << 20)
+        .ttl(Duration.ofSeconds(-1))
+        .ticker(ticker)
+        .build();
+
+    // act
+    forever.put("key1", "value1");
+    expired.put("key1", "value1");
+    ticker.advance(Duration.ofDays(365 * 200L));
+
+    // assert
+    assertEquals("value1", forever.get("key1"));
+    assertFalse(expired.containsKey("key1"));
+  }
+
+  @Test
+  void mustEvictNotReferencedEntriesWhenMemoryIsFull() {
+    // arrange
+    final var cache = OffHeapCache
+        .builder()
+        .maximumBytes(4096)
+        .pageSize(4096)
+        .serializer(Serializer.utf8())
+        .build();
+    cache.put("hot", "value");
+
+    // act
+    for (int i = 0; i < 1000; i++) {
+      cache.put(String.valueOf(i), "value");
+      cache.get("hot");
+    }
+
+    // assert
+    assertTrue(cache.getSize() <= 4096 / 64, String.valueOf(cache.getSize()));
+    assertEquals("value", cache.get("hot"));
+    assertEquals("value", cache.get("999"));
+  }
+
+  @Test
+  void mustGiveThePageToOtherSizeClassWhenItHasNone() {
+    // arrange
+    final var cache = OffHeapCache
+        .builder()
+        .maximumBytes(4096)
+        .pageSize(4096)
+        .serializer(Serializer.utf8())
+        .build();
+    cache.put("small", "value");
+
+    // act
+    cache.put("big", "v".repeat(1000));
+
+    // assert
+    assertFalse(cache.containsKey("small"));
+    assertEquals(1000, cache.<String>get("big").length());
+  }
+
+  @Test
+  void mustKeepStoringOnEverySegmentWhenKeysAreSkewed() {
+    // arrange
+    final var cache = OffHeapCache
+        .builder()
+        .maximumBytes(64 * 4096)
+        .pageSize(4096)
+        .serializer(Serializer.utf8())
+        .build();
+    final var crowded = keysOfSegment(cache, "key0", true, 5000);
+    final var late = keysOfSegment(cache, "key0", false, 50);
+    crowded.forEach(key -> cache.put(key, "value"));
+
+    // act
+    late.forEach(key -> cache.put(key, "value"));
+
+    // assert
+    for (final var key : late) {
+      assertTrue(cache.containsKey(key), key);
+    }
+    assertTrue(cache.getSize() > 64 * 4096 / 64 / 2, String.valueOf(cache.getSize()));
+  }
+
+  @Test
+  void mustNotCacheValuesBiggerThanThePage() {
+    // arrange
+    final var cache = OffHeapCache
+        .builder()
+        .maximumBytes(4096)
+        .pageSize(4096)
+        .serializer(Serializer.utf8())
+        .build();
+    cache.put("key1", "value");
+
+    // act
+    cache.put("key1", "v".repeat(5000));
+
+    // assert
+    assertFalse(cache.containsKey("key1"));
+  }
+
+  @Test
+  void mustStoreOnMemoryMappedFile(@TempDir Path dir) {
+    // arrange
+    final var file = dir.resolve("cache.bin");
+    try (final var cache = OffHeapCache
+        .builder()
+        .maximumBytes(1 << 16)
+        .pageSize(4096)
+        .file(file)
+        .build()) {
+
+      // act
+      final String v = cache.computeIfAbsent("key1", k -> "value1");
+
+      // assert
+      assertEquals("value1", v);
+      assertEquals("value1", cache.computeIfAbsent("key1", k -> "value2"));
+      assertTrue(file.toFile()
+          .length() >= 4096);
+    }
+  }
+
+  static List<String> keysOfSegment(
+      OffHeapCache cache, String reference, boolean same, int count
+  ) {
+    final var keys = new ArrayList<String>();
+    for (int i = 0; keys.size() < count; i++) {
+      final var key = "key" + i;
+      if ((cache.segmentFor(key) == cache.segmentFor(reference)) == same) {
+        keys.add(key);
+      }
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,34 @@
+package com.mageddo.commons.caching;
+
+import java.time.Duration;
+
+import com.mageddo.commons.concurrent.Threads;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickerTest {
+
+  @Test
+  void mustKeepTheCoarseTickerCloseToTheSystemClock() {
+    // arrange
+    final var ticker = Ticker.coarse();
+    final var tolerance = Duration.ofMillis(100)
+        .toNanos();
+
+    // act
+    final var first = ticker.read();
+    final var firstLag = System.nanoTime() - first;
+    Threads.sleep(50);
+    final var second = ticker.read();
+
+    // assert
+    assertSame(ticker, Ticker.coarse());
+    assertTrue(firstLag < tolerance, String.valueOf(firstLag));
+    assertTrue(second - first >= Duration.ofMillis(25)
+        .toNanos(), String.valueOf(second - first));
+    assertTrue(System.nanoTime() - second < tolerance);
+  }
+}
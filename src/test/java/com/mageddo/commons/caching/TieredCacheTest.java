@@ -0,0 +1,163 @@
+package com.mageddo.commons.caching;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TieredCacheTest {
+
+  @Test
+  void mustDemoteEvictedEntriesAndPromoteThemBack() {
+    // arrange
+    final var cache = TieredCache
+        .builder()
+        .capacity(2)
+        .maximumBytes(1 << 24)
+        .ttl(Duration.ofHours(1))
+        .build();
+    cache.put("key1", "value1");
+    cache.put("key2", "value2");
+
+    // act
+    cache.put("key3", "value3");
+
+    // assert
+    assertFalse(cache.getL1()
+        .containsKey("key1"));
+    assertTrue(cache.getL2()
+        .containsKey("key1"));
+
+    assertEquals("value1", cache.get("key1"));
+    assertTrue(cache.getL1()
+        .containsKey("key1"));
+    assertFalse(cache.getL2()
+        .containsKey("key1"));
+    assertEquals(1, cache.getL2()
+        .getSize());
+  }
+
+  @Test
+  void mustNotDemoteAnEntryRemovedWhileBeingEvicted() {
+    // arrange
+    final var cache = TieredCache
+        .builder()
+        .capacity(2)
+        .maximumBytes(1 << 24)
+        .ttl(Duration.ofHours(1))
+        .build();
+    cache.put("key1", "value1");
+    final var evicted = cache.getL1()
+        .asMap()
+        .get("key1");
+    cache.evicting(evicted);
+
+    // act
+    cache.remove("key1");
+    cache.demote(evicted);
+
+    // assert
+    assertFalse(cache.getL2()
+        .containsKey("key1"));
+    assertNull(cache.get("key1"));
+  }
+
+  @Test
+  void mustKeepTheExpirationAcrossTheLevels() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var cache = TieredCache
+        .builder()
+        .capacity(1)
+        .maximumBytes(1 << 24)
+        .ttl(Duration.ofSeconds(10))
+        .ticker(ticker)
+        .build();
+    cache.put("key1", "value1");
+    ticker.advance(Duration.ofSeconds(6));
+    cache.put("key2", "value2");
+
+    // act
+    assertEquals("value1", cache.get("key1"));
+    ticker.advance(Duration.ofSeconds(5));
+
+    // assert
+    assertFalse(cache.containsKey("key1"));
+    assertEquals("value2", cache.get("key2"));
+  }
+
+  @Test
+  void mustComputeOnlyWhenMissingOnBothLevels() {
+    // arrange
+    final var cache = TieredCache
+        .builder()
+        .capacity(1)
+        .maximumBytes(1 << 24)
+        .ttl(Duration.ofHours(1))
+        .build();
+    cache.put("key1", "value1");
+    cache.put("key2", "value2");
+
+    // act
+    final String v1 = cache.computeIfAbsent("key1", k -> "computed");
+    final String v3 = cache.computeIfAbsent("key3", k -> "computed");
+
+    // assert
+    assertEquals("value1", v1);
+    assertEquals("computed", v3);
+    cache.remove("key2");
+    assertFalse(cache.containsKey("key2"));
+  }
+
+  @Test
+  void mustNotOverwriteAConcurrentPutWhenPromoting() {
+    // arrange
+    final var cache = TieredCache
+        .builder()
+        .capacity(10)
+        .maximumBytes(1 << 24)
+        .ttl(Duration.ofHours(1))
+        .build();
+    cache.getL2()
+        .put("key1", "old");
+    cache.getL1()
+        .put("key1", "new");
+
+    // act
+    final var promoted = cache.promote("key1");
+
+    // assert
+    assertEquals("new", promoted);
+    assertEquals("new", cache.get("key1"));
+    assertFalse(cache.getL2()
+        .containsKey("key1"));
+  }
+
+  @Test
+  void mustKeepTheExpirationWhenComputingADemotedEntry() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var cache = TieredCache
+        .builder()
+        .capacity(1)
+        .maximumBytes(1 << 24)
+        .ttl(Duration.ofSeconds(10))
+        .ticker(ticker)
+        .build();
+    cache.put("key1", "value1");
+    ticker.advance(Duration.ofSeconds(6));
+    cache.put("key2", "value2");
+
+    // act
+    final String v = cache.computeIfAbsent("key1", k -> "computed");
+    ticker.advance(Duration.ofSeconds(5));
+
+    // assert
+    assertEquals("value1", v);
+    assertEquals("computed", cache.computeIfAbsent("key1", k -> "computed"));
+  }
+}
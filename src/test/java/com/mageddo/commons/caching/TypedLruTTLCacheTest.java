@@ -0,0 +1,98 @@
+package com.mageddo.commons.caching;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.mageddo.commons.lang.tuple.Pair;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TypedLruTTLCacheTest {
+
+  @Test
+  void mustCacheByCompositeKeys() {
+    // arrange
+    final var cache = new TypedLruTTLCache<Pair<String, Integer>, Integer>(
+        10, Duration.ofHours(1)
+    );
+    final var counter = new AtomicInteger();
+
+    // act
+    final int v1 = cache.computeIfAbsent(Pair.of("a", 1), k -> counter.incrementAndGet());
+    final int v2 = cache.computeIfAbsent(Pair.of("a", 1), k -> counter.incrementAndGet());
+    final int v3 = cache.computeIfAbsent(Pair.of("a", 2), k -> counter.incrementAndGet());
+
+    // assert
+    assertEquals(1, v1);
+    assertEquals(1, v2);
+    assertEquals(2, v3);
+    assertFalse(cache.containsKey(Pair.of("b", 1)));
+  }
+
+  @Test
+  void mustBeUsableAsStringCacheThroughTheAdapter() {
+    // arrange
+    final MutableCache cache = new CacheAdapter(new TypedLruTTLCache<String, Integer>(
+        10, Duration.ofHours(1)
+    ));
+
+    // act
+    cache.putAll(Map.of("a", 1, "b", 2));
+
+    // assert
+    assertEquals(Integer.valueOf(1), cache.get("a"));
+    assertEquals(Map.of("b", 2), cache.getAll(List.of("b", "c")));
+  }
+
+  @Test
+  void mustExpireEntriesPutWithManyDistinctTtls() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var cache = TypedLruTTLCache
+        .<Integer, Integer>builder()
+        .ttl(Duration.ofHours(1))
+        .ticker(ticker)
+        .build();
+
+    // act
+    assertTimeout(Duration.ofSeconds(5), () -> {
+      for (int i = 1; i <= 50_000; i++) {
+        cache.put(i, i, Duration.ofSeconds(i));
+      }
+    });
+    ticker.advance(Duration.ofSeconds(10_000));
+    cache.cleanUp();
+
+    // assert
+    assertEquals(40_001, cache.getSize());
+    assertFalse(cache.containsKey(9_999));
+    assertTrue(cache.containsKey(10_000));
+  }
+
+  @Test
+  void mustRunTheEvictionHookAfterReleasingTheEvictionLock() {
+    // arrange
+    final var cache = new TypedLruTTLCache<String, Integer>(1, Duration.ofHours(1));
+    final var weightedSizes = new ArrayList<Long>();
+    cache.onEviction(w -> weightedSizes.add(
+        CompletableFuture.supplyAsync(cache::getWeightedSize).orTimeout(5, TimeUnit.SECONDS).join()
+    ));
+    cache.put("a", 1);
+
+    // act
+    cache.put("b", 2);
+
+    // assert
+    assertEquals(List.of(0L), weightedSizes);
+  }
+}
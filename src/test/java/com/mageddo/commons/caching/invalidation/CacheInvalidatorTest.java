@@ -0,0 +1,201 @@
+package com.mageddo.commons.caching.invalidation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.mageddo.commons.caching.LruTTLCache;
+import com.mageddo.commons.concurrent.Threads;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheInvalidatorTest {
+
+  static final Duration NEVER = Duration.ofHours(1);
+
+  @Test
+  void mustRemoveTheKeyOnTheOtherNodesAfterFlushing() {
+    // arrange
+    final var transport = new InProcessInvalidationTransport();
+    final var cache1 = new LruTTLCache(NEVER);
+    final var cache2 = new LruTTLCache(NEVER);
+    final var node1 = newInvalidator(transport).register("users", cache1);
+    final var node2 = newInvalidator(transport).register("users", cache2);
+    cache1.put("1", "a");
+    cache2.put("1", "a");
+    cache2.put("2", "b");
+
+    // act
+    node1.invalidate("users", "1");
+    final var beforeFlush = cache2.containsKey("1");
+    node1.flush();
+
+    // assert
+    assertFalse(cache1.containsKey("1"));
+    assertTrue(beforeFlush);
+    assertFalse(cache2.containsKey("1"));
+    assertTrue(cache2.containsKey("2"));
+    node1.close();
+    node2.close();
+  }
+
+  @Test
+  void mustCoalesceRepeatedInvalidations() {
+    // arrange
+    final var transport = new InProcessInvalidationTransport();
+    final var batches = new ArrayList<InvalidationBatch>();
+    transport.subscribe(batches::add);
+    final var node = newInvalidator(transport);
+
+    // act
+    node.invalidate("users", "1");
+    node.invalidate("users", "1");
+    node.invalidate("users", "1");
+    node.invalidateAll("orders");
+    node.flush();
+
+    // assert
+    assertEquals(1, batches.size());
+    final var invalidations = batches.get(0)
+        .getInvalidations();
+    assertEquals(2, invalidations.size());
+    assertTrue(invalidations.contains(new Invalidation("users", "1")));
+    assertTrue(invalidations
+        .stream()
+        .anyMatch(Invalidation::isAll));
+    node.close();
+  }
+
+  @Test
+  void mustPublishAHeartbeatWithTheLastSequenceWhenNothingIsQueued() {
+    // arrange
+    final var transport = new InProcessInvalidationTransport();
+    final var batches = new ArrayList<InvalidationBatch>();
+    transport.subscribe(batches::add);
+    final var node = newInvalidator(transport);
+    node.invalidate("users", "1");
+    node.flush();
+
+    // act
+    node.flush();
+
+    // assert
+    assertEquals(2, batches.size());
+    assertFalse(batches.get(0)
+        .isHeartbeat());
+    assertTrue(batches.get(1)
+        .isHeartbeat());
+    assertEquals(1, batches.get(1)
+        .getSequence());
+    node.close();
+  }
+
+  @Test
+  void mustClearEverythingWhenAHeartbeatShowsTheLastBatchWasLost() {
+    // arrange
+    final var cache = new LruTTLCache(NEVER);
+    cache.put("1", "a");
+    cache.put("2", "b");
+    final var node = newInvalidator(new InProcessInvalidationTransport()).register("users", cache);
+    node.onBatch(new InvalidationBatch("other", 1, 1, List.of(new Invalidation("users", "1"))));
+
+    // act
+    node.onBatch(new InvalidationBatch("other", 1, 1, List.of()));
+    final var afterUpToDateHeartbeat = cache.getSize();
+    node.onBatch(new InvalidationBatch("other", 1, 2, List.of()));
+
+    // assert
+    assertEquals(1, afterUpToDateHeartbeat);
+    assertTrue(cache.isEmpty());
+    node.close();
+  }
+
+  @Test
+  void mustClearEverythingWhenABatchIsLost() {
+    // arrange
+    final var cache = new LruTTLCache(NEVER);
+    cache.put("1", "a");
+    cache.put("2", "b");
+    final var node = newInvalidator(new InProcessInvalidationTransport()).register("users", cache);
+
+    // act
+    node.onBatch(new InvalidationBatch("other", 1, 1, List.of(new Invalidation("users", "1"))));
+    final var afterFirst = cache.getSize();
+    node.onBatch(new InvalidationBatch("other", 1, 1, List.of(new Invalidation("users", "2"))));
+    final var afterDuplicated = cache.getSize();
+    node.onBatch(new InvalidationBatch("other", 1, 3, List.of()));
+
+    // assert
+    assertEquals(1, afterFirst);
+    assertEquals(1, afterDuplicated);
+    assertTrue(cache.isEmpty());
+    node.close();
+  }
+
+  @Test
+  void mustInvalidateOverUdpLoopback() {
+    // arrange
+    final var transport1 = UdpInvalidationTransport
+        .builder()
+        .build();
+    final var transport2 = UdpInvalidationTransport
+        .builder()
+        .build();
+    transport1.addPeer(transport2.getLocalAddress());
+    transport2.addPeer(transport1.getLocalAddress());
+    final var cache2 = new LruTTLCache(NEVER);
+    cache2.put("1", "a");
+    final var node1 = newInvalidator(transport1);
+    final var node2 = newInvalidator(transport2).register("users", cache2);
+
+    // act
+    node1.invalidate("users", "1");
+    node1.flush();
+    for (int i = 0; i < 100 && cache2.containsKey("1"); i++) {
+      Threads.sleep(20);
+    }
+
+    // assert
+    assertFalse(cache2.containsKey("1"));
+    node1.close();
+    node2.close();
+    transport1.close();
+    transport2.close();
+  }
+
+  @Test
+  void mustInvalidateWholeCachesWhenBatchDoesNotFitADatagram() {
+    // arrange
+    final var invalidations = IntStream
+        .range(0, 5000)
+        .mapToObj(i -> new Invalidation(i % 2 == 0 ? "users" : "orders", "key-" + i))
+        .collect(Collectors.toList());
+    final var batch = new InvalidationBatch("node", 1, 1, invalidations);
+
+    // act
+    final var encoded = InvalidationCodec.encode(batch);
+    final var data = InvalidationCodec.encode(UdpInvalidationTransport.wholeCaches(batch));
+    final var degraded = InvalidationCodec.decode(data, 0, data.length);
+
+    // assert
+    assertTrue(encoded.length > UdpInvalidationTransport.MAX_PACKET_SIZE);
+    assertEquals(
+        List.of(new Invalidation("users", null), new Invalidation("orders", null)),
+        degraded.getInvalidations()
+    );
+  }
+
+  static CacheInvalidator newInvalidator(InvalidationTransport transport) {
+    return CacheInvalidator
+        .builder()
+        .transport(transport)
+        .flushInterval(Duration.ofHours(1))
+        .build();
+  }
+}
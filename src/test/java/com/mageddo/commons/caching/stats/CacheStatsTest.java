@@ -0,0 +1,151 @@
+package com.mageddo.commons.caching.stats;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+
+import com.mageddo.commons.caching.LruCache;
+import com.mageddo.commons.caching.LruTTLCache;
+import com.mageddo.commons.caching.ManualTicker;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheStatsTest {
+
+  @Test
+  void mustCountHitsMissesAndLoads() {
+    // arrange
+    final var cache = LruTTLCache
+        .builder()
+        .ttl(Duration.ofHours(1))
+        .recordStats(true)
+        .build();
+
+    // act
+    cache.computeIfAbsent("a", k -> "A");
+    cache.computeIfAbsent("a", k -> "A");
+    cache.get("b");
+    cache.getAll(List.of("a", "b", "c"));
+    assertThrows(IllegalStateException.class, () -> cache.computeIfAbsent("d", k -> {
+      throw new IllegalStateException("failed");
+    }));
+
+    // assert
+    final var stats = cache.stats();
+    assertEquals(2, stats.getHitCount());
+    assertEquals(5, stats.getMissCount());
+    assertEquals(1, stats.getLoadSuccessCount());
+    assertEquals(1, stats.getLoadFailureCount());
+    assertTrue(stats.getTotalLoadNanos() > 0);
+    assertEquals(2.0 / 7, stats.getHitRate(), 0.0001);
+  }
+
+  @Test
+  void mustCountRemovalsByCause() {
+    // arrange
+    final var ticker = new ManualTicker();
+    final var cache = LruTTLCache
+        .builder()
+        .capacity(2)
+        .ttl(Duration.ofSeconds(10))
+        .ticker(ticker)
+        .recordStats(true)
+        .build();
+    cache.put("a", 1);
+    cache.put("b", 2);
+
+    // act
+    cache.put("c", 3);
+    cache.remove("b");
+    ticker.advance(Duration.ofSeconds(11));
+    cache.cleanUp();
+    cache.put("d", 4);
+    cache.clear();
+
+    // assert
+    final var stats = cache.stats();
+    assertEquals(1, stats.getEvictionCount());
+    assertEquals(1, stats.getExpirationCount());
+    assertEquals(2, stats.getExplicitRemovalCount());
+  }
+
+  @Test
+  void mustNotCountWhenNotAsked() {
+    // arrange
+    final var cache = new LruTTLCache(Duration.ofHours(1));
+
+    // act
+    cache.computeIfAbsent("a", k -> "A");
+    cache.get("a");
+
+    // assert
+    assertEquals(CacheStats.empty(), cache.stats());
+  }
+
+  @Test
+  void mustCountOnLruCache() {
+    // arrange
+    final var cache = new LruCache(2).recordStats();
+    cache.put("a", 1);
+    cache.put("b", 2);
+
+    // act
+    cache.get("a");
+    cache.get("x");
+    cache.put("a", 3);
+    cache.put("c", 3);
+    cache.computeIfAbsent("d", k -> 4);
+    cache.remove("c");
+
+    // assert
+    final var stats = cache.stats();
+    assertEquals(1, stats.getHitCount());
+    assertEquals(2, stats.getMissCount());
+    assertEquals(1, stats.getLoadSuccessCount());
+    assertEquals(2, stats.getEvictionCount());
+    assertEquals(1, stats.getExplicitRemovalCount());
+  }
+
+  @Test
+  void mustSubtractSnapshots() {
+    // arrange
+    final var before = new CacheStats(1, 2, 0, 0, 0, 1, 0, 0);
+    final var after = new CacheStats(5, 3, 1, 0, 10, 1, 2, 0);
+
+    // act
+    final var delta = after.minus(before);
+
+    // assert
+    assertEquals(new CacheStats(4, 1, 1, 0, 10, 0, 2, 0), delta);
+    assertEquals(0.8, delta.getHitRate(), 0.0001);
+    assertEquals(10.0, delta.getAverageLoadNanos(), 0.0001);
+  }
+
+  @Test
+  void mustPublishOnJmx() throws Exception {
+    // arrange
+    final var cache = new LruCache(10).recordStats();
+    cache.put("a", 1);
+    cache.get("a");
+
+    // act
+    final var jmx = CacheStatsJmx.register("mustPublishOnJmx", cache::stats);
+
+    // assert
+    try {
+      final var server = ManagementFactory.getPlatformMBeanServer();
+      assertEquals(1L, server.getAttribute(jmx.getObjectName(), "HitCount"));
+      assertEquals(1.0, server.getAttribute(jmx.getObjectName(), "HitRate"));
+    } finally {
+      jmx.unregister();
+    }
+    assertFalse(ManagementFactory
+        .getPlatformMBeanServer()
+        .isRegistered(jmx.getObjectName()));
+  }
+}
@@ -0,0 +1,124 @@
+package com.mageddo.commons.concurrent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedWheelSchedulerTest {
+
+  @Test
+  void mustRunTasksAfterTheirDelayNeverBefore() throws Exception {
+    // arrange
+    final var scheduler = ThreadPool.newHashedWheel("test", Duration.ofMillis(5));
+    final var stopWatch = StopWatch.createStarted();
+
+    // act
+    final var result = scheduler.schedule(() -> "done", 50, TimeUnit.MILLISECONDS)
+        .get();
+
+    // assert
+    assertEquals("done", result);
+    assertTrue(stopWatch.getTime() >= 50);
+    assertEquals(0, scheduler.getScheduledCount());
+    ThreadPool.terminateAndWait(scheduler, Duration.ofSeconds(5));
+    assertTrue(scheduler.isTerminated());
+  }
+
+  @Test
+  void mustNotRunCancelledTasks() throws Exception {
+    // arrange
+    final var scheduler = ThreadPool.newHashedWheel("test", Duration.ofMillis(1));
+    final var ran = new AtomicInteger();
+    final var futures = new ArrayList<ScheduledFuture<?>>();
+
+    // act
+    for (int i = 0; i < 10_000; i++) {
+      futures.add(scheduler.schedule(ran::incrementAndGet, 500, TimeUnit.MILLISECONDS));
+    }
+    for (int i = 0; i < futures.size(); i += 2) {
+      futures.get(i)
+          .cancel(false);
+    }
+    Threads.sleep(1000);
+
+    // assert
+    assertEquals(5_000, ran.get());
+    assertEquals(0, scheduler.getScheduledCount());
+    assertThrows(CancellationException.class, () -> futures.get(0)
+        .get());
+    ThreadPool.terminateAndWait(scheduler, Duration.ofSeconds(5));
+  }
+
+  @Test
+  void mustRunDelaysLongerThanAWheelTurn() throws Exception {
+    // arrange
+    final var scheduler = HashedWheelScheduler
+        .builder()
+        .tick(Duration.ofMillis(1))
+        .wheelSize(8)
+        .build();
+    final var stopWatch = StopWatch.createStarted();
+
+    // act
+    scheduler.schedule(() -> {
+        }, 40, TimeUnit.MILLISECONDS)
+        .get();
+
+    // assert
+    assertTrue(stopWatch.getTime() >= 40);
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  void mustRepeatPeriodicTasksUntilShutdown() throws Exception {
+    // arrange
+    final var scheduler = ThreadPool.newHashedWheel("test", Duration.ofMillis(1));
+    final var fixedRate = new CountDownLatch(5);
+    final var fixedDelay = new CountDownLatch(5);
+
+    // act
+    final var rate = scheduler.scheduleAtFixedRate(
+        fixedRate::countDown, 0, 5, TimeUnit.MILLISECONDS
+    );
+    final var delay = scheduler.scheduleWithFixedDelay(
+        fixedDelay::countDown, 0, 5, TimeUnit.MILLISECONDS
+    );
+    final var completed = fixedRate.await(5, TimeUnit.SECONDS)
+        && fixedDelay.await(5, TimeUnit.SECONDS);
+    scheduler.shutdown();
+
+    // assert
+    assertTrue(completed);
+    assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+    assertTrue(rate.isCancelled());
+    assertTrue(delay.isCancelled());
+  }
+
+  @Test
+  void mustReturnTheTasksWhichNeverRanOnShutdownNow() {
+    // arrange
+    final var scheduler = ThreadPool.newHashedWheel("test", Duration.ofMillis(1));
+    scheduler.schedule(() -> {
+    }, 1, TimeUnit.HOURS);
+    scheduler.schedule(() -> {
+    }, 2, TimeUnit.HOURS);
+
+    // act
+    final var unprocessed = scheduler.shutdownNow();
+
+    // assert
+    assertEquals(2, unprocessed.size());
+    assertTrue(scheduler.isTerminated());
+  }
+}
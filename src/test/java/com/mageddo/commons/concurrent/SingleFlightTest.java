@@ -0,0 +1,66 @@
+package com.mageddo.commons.concurrent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+  @Test
+  void mustRunOnceForConcurrentCallersAndForgetTheKey() throws Exception {
+
+    // arrange
+    final var singleFlight = new SingleFlight<String, String>();
+    final var counter = new AtomicInteger();
+    final var pool = ThreadPool.newFixed(5);
+    final var futures = new ArrayList<Future<String>>();
+
+    // act
+    for (int i = 0; i < 5; i++) {
+      futures.add(pool.submit(() -> singleFlight.execute("key", () -> {
+        counter.incrementAndGet();
+        Threads.sleep(300);
+        return "a value";
+      })));
+    }
+
+    // assert
+    for (final var future : futures) {
+      assertEquals("a value", future.get());
+    }
+    assertEquals(1, counter.get());
+    assertEquals(0, singleFlight.size());
+    ThreadPool.terminateAndWait(pool, Duration.ofSeconds(1));
+  }
+
+  @Test
+  void mustPropagateTheFailureToTheWaiters() {
+
+    // arrange
+    final var singleFlight = new SingleFlight<String, String>();
+    final var pool = ThreadPool.newFixed(2);
+
+    // act
+    final Future<String> first = pool.submit(() -> singleFlight.execute("key", () -> {
+      Threads.sleep(300);
+      throw new IllegalStateException("failed");
+    }));
+    Threads.sleep(50);
+    final Future<String> second = pool.submit(() -> singleFlight.execute("key", () -> "a value"));
+
+    // assert
+    final var e = assertThrows(ExecutionException.class, second::get);
+    assertInstanceOf(IllegalStateException.class, e.getCause());
+    assertThrows(ExecutionException.class, first::get);
+    assertEquals(0, singleFlight.size());
+    ThreadPool.terminateAndWait(pool, Duration.ofSeconds(1));
+  }
+}
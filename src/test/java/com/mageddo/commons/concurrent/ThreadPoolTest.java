@@ -0,0 +1,271 @@
+package com.mageddo.commons.concurrent;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThreadPoolTest {
+
+  @Test
+  void mustNeverRunMoreThanTheMaxConcurrency() throws Exception {
+    // arrange
+    final var running = new AtomicInteger();
+    final var maxRunning = new AtomicInteger();
+    final var tasks = new ArrayList<Callable<Integer>>();
+    for (int i = 0; i < 30; i++) {
+      final int n = i;
+      tasks.add(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        Threads.sleep(10);
+        running.decrementAndGet();
+        return n;
+      });
+    }
+
+    // act
+    final var futures = ThreadPool.invokeAll(
+        ThreadPool.virtual(), tasks, 4, Duration.ofSeconds(10)
+    );
+
+    // assert
+    assertTrue(maxRunning.get() <= 4);
+    for (int i = 0; i < futures.size(); i++) {
+      assertTrue(futures.get(i)
+          .isDone());
+      assertEquals(i, futures.get(i)
+          .get());
+    }
+  }
+
+  @Test
+  void mustCancelTheUnfinishedTasksWhenTheDeadlinePasses() throws Exception {
+    // arrange
+    final List<Callable<String>> tasks = List.of(
+        () -> "fast",
+        () -> {
+          Thread.sleep(5_000);
+          return "slow";
+        }
+    );
+
+    // act
+    final var futures = ThreadPool.invokeAll(
+        ThreadPool.virtual(), tasks, 2, Duration.ofMillis(200)
+    );
+
+    // assert
+    assertEquals("fast", futures.get(0)
+        .get());
+    assertTrue(futures.get(1)
+        .isCancelled());
+  }
+
+  @Test
+  void mustNotTimeOutWhenTheDeadlineIsHuge() throws Exception {
+    // arrange
+    final List<Callable<String>> tasks = List.of(() -> "a", () -> "b");
+
+    // act
+    final var forever = ThreadPool.invokeAll(
+        ThreadPool.virtual(), tasks, 1, ChronoUnit.FOREVER.getDuration()
+    );
+    final var nearOverflow = ThreadPool.invokeAll(
+        ThreadPool.virtual(), tasks, 1, Duration.ofNanos(Long.MAX_VALUE)
+    );
+
+    // assert
+    for (final var futures : List.of(forever, nearOverflow)) {
+      assertEquals("a", futures.get(0)
+          .get());
+      assertEquals("b", futures.get(1)
+          .get());
+    }
+  }
+
+  @Test
+  void mustFanOutKeepingTheInputsOrder() {
+    // arrange
+    final var inputs = IntStream
+        .range(0, 100)
+        .boxed()
+        .collect(Collectors.toList());
+
+    // act
+    final var results = ThreadPool.fanOut(inputs, i -> i * 2, 8, Duration.ofSeconds(10));
+
+    // assert
+    assertEquals(
+        inputs.stream()
+            .map(i -> i * 2)
+            .collect(Collectors.toList()),
+        results
+    );
+  }
+
+  @Test
+  void mustReportTheFailureAndTheTimeoutOnFanOut() {
+    // act
+    final var failed = assertThrows(CompletionException.class, () -> ThreadPool.fanOut(
+        List.of(1, 2), i -> {
+          throw new IllegalStateException("failed " + i);
+        }, 2, Duration.ofSeconds(10)
+    ));
+    final var timedOut = assertThrows(CompletionException.class, () -> ThreadPool.fanOut(
+        List.of(1), i -> {
+          Threads.sleep(5_000);
+          return i;
+        }, 1, Duration.ofMillis(100)
+    ));
+
+    // assert
+    assertEquals("failed 1", failed.getCause()
+        .getMessage());
+    assertInstanceOf(TimeoutException.class, timedOut.getCause());
+  }
+
+  @Test
+  void mustRunOnTheCallerWhenTheBoundedQueueIsFull() throws Exception {
+    // arrange
+    final var release = new CountDownLatch(1);
+    final var pool = ThreadPool.newBounded(1, 1, Backpressure.callerRuns());
+    pool.execute(() -> await(release));
+    pool.execute(() -> await(release));
+    final var ranOn = new AtomicReference<Thread>();
+
+    // act
+    pool.execute(() -> ranOn.set(Thread.currentThread()));
+
+    // assert
+    assertEquals(Thread.currentThread(), ranOn.get());
+    release.countDown();
+    ThreadPool.terminateAndWait(pool, Duration.ofSeconds(5));
+  }
+
+  @Test
+  void mustDropTheOldestQueuedTask() throws Exception {
+    // arrange
+    final var release = new CountDownLatch(1);
+    final var ran = new ConcurrentLinkedQueue<String>();
+    final var pool = ThreadPool.newBounded(1, 1, Backpressure.dropOldest());
+    pool.execute(() -> await(release));
+
+    // act
+    pool.execute(() -> ran.add("old"));
+    pool.execute(() -> ran.add("new"));
+    release.countDown();
+    ThreadPool.terminateAndWait(pool, Duration.ofSeconds(5));
+
+    // assert
+    assertEquals(List.of("new"), List.copyOf(ran));
+  }
+
+  @Test
+  void mustBlockUntilTheTimeoutWhenTheQueueStaysFull() {
+    // arrange
+    final var release = new CountDownLatch(1);
+    final var pool = ThreadPool.newBounded(1, 1, Backpressure.block(Duration.ofMillis(100)));
+    pool.execute(() -> await(release));
+    pool.execute(() -> await(release));
+    final var stopWatch = StopWatch.createStarted();
+
+    // act
+    assertThrows(RejectedExecutionException.class, () -> pool.execute(() -> {
+    }));
+
+    // assert
+    assertTrue(stopWatch.getTime() >= 100);
+    release.countDown();
+    ThreadPool.terminateAndWait(pool, Duration.ofSeconds(5));
+  }
+
+  @Test
+  void mustAddCoreThreadsWhenTasksQueueUpAndRemoveThemWhenIdle() {
+    // arrange
+    final var release = new CountDownLatch(1);
+    final var pool = ThreadPool.newAdaptive(1, 4, 100, Backpressure.abort());
+
+    // act
+    for (int i = 0; i < 20; i++) {
+      pool.execute(() -> await(release));
+    }
+    final var grown = pool.getCorePoolSize();
+    release.countDown();
+    for (int i = 0; i < 20; i++) {
+      pool.execute(() -> {
+      });
+    }
+    ThreadPool.terminateAndWait(pool, Duration.ofSeconds(5));
+
+    // assert
+    assertEquals(4, grown);
+    assertTrue(pool.getCorePoolSize() < 4);
+  }
+
+  @Test
+  void mustRunForkedTasksOnTheWorkStealingPool() {
+    // arrange
+    final var pool = ThreadPool.newWorkStealing(2);
+
+    // act
+    final var sum = pool.invoke(new Sum(1, 10_000));
+
+    // assert
+    assertEquals(50_005_000L, sum);
+    ThreadPool.terminateAndWait(pool, Duration.ofSeconds(5));
+  }
+
+  static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread()
+          .interrupt();
+    }
+  }
+
+  static class Sum extends RecursiveTask<Long> {
+
+    final int from;
+    final int to;
+
+    Sum(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Long compute() {
+      if (this.to - this.from < 100) {
+        long sum = 0;
+        for (int i = this.from; i <= this.to; i++) {
+          sum += i;
+        }
+        return sum;
+      }
+      final int middle = (this.from + this.to) >>> 1;
+      final var left = new Sum(this.from, middle);
+      left.fork();
+      return new Sum(middle + 1, this.to).compute() + left.join();
+    }
+  }
+}
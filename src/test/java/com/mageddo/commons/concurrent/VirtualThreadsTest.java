@@ -0,0 +1,48 @@
+package com.mageddo.commons.concurrent;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualThreadsTest {
+
+  @Test
+  @EnabledIfSystemProperty(named = "commons.multiRelease", matches = "true")
+  void mustUseVirtualThreadsWhenRunningTheJava21Classes() {
+    // act
+    final var name = runAndGetThreadName();
+
+    // assert
+    assertTrue(VirtualThreads.isSupported());
+    assertTrue(name.startsWith("virtual-test-"), name);
+  }
+
+  @Test
+  @DisabledIfSystemProperty(named = "commons.multiRelease", matches = "true")
+  void mustFallbackToPlatformThreadsOnTheJava8Classes() {
+    // act
+    final var name = runAndGetThreadName();
+
+    // assert
+    assertFalse(VirtualThreads.isSupported());
+    assertTrue(name.startsWith("virtual-test-"), name);
+  }
+
+  static String runAndGetThreadName() {
+    final var executor = VirtualThreads.newThreadPerTaskExecutor("virtual-test");
+    try {
+      return CompletableFuture
+          .supplyAsync(() -> Thread.currentThread()
+              .getName(), executor)
+          .join();
+    } finally {
+      ThreadPool.terminateAndWait(executor, Duration.ofSeconds(5));
+    }
+  }
+}
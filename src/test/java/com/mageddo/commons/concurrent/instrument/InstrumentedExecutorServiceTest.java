@@ -0,0 +1,219 @@
+package com.mageddo.commons.concurrent.instrument;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
+
+import com.mageddo.commons.concurrent.Backpressure;
+import com.mageddo.commons.concurrent.ThreadPool;
+import com.mageddo.commons.concurrent.Threads;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstrumentedExecutorServiceTest {
+
+  @Test
+  void mustRecordWaitRunActiveQueuedAndRejected() throws Exception {
+    // arrange
+    final var release = new CountDownLatch(1);
+    final var started = new CountDownLatch(1);
+    final var executor = ThreadPool.instrumented(
+        "test", ThreadPool.newBounded(1, 1, Backpressure.abort())
+    );
+
+    // act
+    executor.execute(() -> {
+      started.countDown();
+      await(release);
+    });
+    executor.execute(() -> Threads.sleep(10));
+    assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {
+    }));
+    started.await();
+    final var busy = executor.stats();
+    Threads.sleep(50);
+    release.countDown();
+    executor.shutdown();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+    final var done = executor.stats();
+
+    // assert
+    assertEquals(1, busy.getActiveCount());
+    assertEquals(1, busy.getQueueSize());
+    assertEquals(1, busy.getRejectedCount());
+    assertEquals(2, done.getSubmittedCount());
+    assertEquals(2, done.getCompletedCount());
+    assertEquals(0, done.getActiveCount());
+    assertTrue(done.getWaitNanos()
+        .getMax() >= Duration.ofMillis(50)
+        .toNanos());
+    assertTrue(done.getRunNanos()
+        .getMax() >= Duration.ofMillis(50)
+        .toNanos());
+  }
+
+  @Test
+  void mustRecordHowLateScheduledTasksRun() throws Exception {
+    // arrange
+    final var executor = ThreadPool.instrumented("scheduled", ThreadPool.newScheduled("test", 1));
+    final var ran = new CountDownLatch(3);
+
+    // act
+    executor.scheduleAtFixedRate(ran::countDown, 0, 10, TimeUnit.MILLISECONDS);
+    ran.await();
+    executor.schedule(() -> "done", 20, TimeUnit.MILLISECONDS)
+        .get();
+    ThreadPool.terminateAndWait(executor, Duration.ofSeconds(5));
+
+    // assert
+    final var stats = executor.stats();
+    assertEquals(2, stats.getSubmittedCount());
+    assertTrue(stats.getCompletedCount() >= 4);
+    assertTrue(stats.getWaitNanos()
+        .getMax() < Duration.ofSeconds(1)
+        .toNanos());
+  }
+
+  @Test
+  void mustOnlyCountTheDueScheduledTasksAsQueued() {
+    // arrange
+    final var executor = ThreadPool.instrumented("delayed", ThreadPool.newScheduled("test", 1));
+
+    // act
+    executor.schedule(() -> {
+    }, 1, TimeUnit.HOURS);
+    final var stats = executor.stats();
+
+    // assert
+    assertEquals(1, stats.getSubmittedCount());
+    assertEquals(0, stats.getQueueSize());
+    executor.shutdownNow();
+  }
+
+  @Test
+  void mustCountTheDueScheduledTasksWhileEveryThreadIsBusy() throws Exception {
+    // arrange
+    final var release = new CountDownLatch(1);
+    final var started = new CountDownLatch(1);
+    final var executor = ThreadPool.instrumented("busy", ThreadPool.newScheduled("test", 1));
+    executor.execute(() -> {
+      started.countDown();
+      await(release);
+    });
+    started.await();
+
+    // act
+    executor.schedule(() -> {
+    }, 0, TimeUnit.MILLISECONDS);
+    executor.schedule(() -> {
+    }, 1, TimeUnit.HOURS);
+    final var stats = executor.stats();
+
+    // assert
+    assertEquals(1, stats.getQueueSize());
+    release.countDown();
+    executor.shutdownNow();
+  }
+
+  @Test
+  void mustInstrumentAndPublishTheSharedPools() throws Exception {
+    // act
+    final var main = ThreadPool.main();
+    final var scheduled = ThreadPool.scheduled();
+
+    // assert
+    assertTrue(main instanceof InstrumentedExecutorService);
+    assertTrue(scheduled instanceof InstrumentedScheduledExecutorService);
+    final var server = ManagementFactory.getPlatformMBeanServer();
+    for (final var name : List.of("commons-main", "commons-scheduled")) {
+      assertTrue(server.isRegistered(new ObjectName(String.format(
+          "com.mageddo.commons.concurrent:type=ExecutorStats,name=%s", ObjectName.quote(name)
+      ))), name);
+    }
+  }
+
+  @Test
+  void mustNamePoolThreads() throws Exception {
+    // arrange
+    final var pool = ThreadPool.newFixed("workers", 1);
+
+    // act
+    final var name = pool.submit(() -> Thread.currentThread()
+            .getName())
+        .get();
+
+    // assert
+    assertEquals("workers-0", name);
+    ThreadPool.terminateAndWait(pool, Duration.ofSeconds(5));
+  }
+
+  @Test
+  void mustPublishOnJmx() throws Exception {
+    // arrange
+    final var executor = ThreadPool.instrumented("jmx-test", ThreadPool.newFixed("jmx", 1));
+    executor.submit(() -> {
+        })
+        .get();
+    ThreadPool.terminateAndWait(executor, Duration.ofSeconds(5));
+
+    // act
+    final var jmx = ExecutorStatsJmx.register(executor);
+
+    // assert
+    try {
+      final var server = ManagementFactory.getPlatformMBeanServer();
+      assertEquals(1L, server.getAttribute(jmx.getObjectName(), "CompletedCount"));
+      assertEquals(0, server.getAttribute(jmx.getObjectName(), "QueueSize"));
+    } finally {
+      jmx.unregister();
+    }
+    assertFalse(ManagementFactory
+        .getPlatformMBeanServer()
+        .isRegistered(jmx.getObjectName()));
+  }
+
+  @Test
+  void mustShareTheSnapshotBetweenTheAttributesOfAPoll() throws Exception {
+    // arrange
+    final var executor = ThreadPool.instrumented("jmx-poll", ThreadPool.newFixed("jmx", 1));
+    final var snapshots = new AtomicInteger();
+    final var jmx = ExecutorStatsJmx.register("jmx-poll", () -> {
+      snapshots.incrementAndGet();
+      return executor.stats();
+    });
+
+    // act
+    try {
+      final var server = ManagementFactory.getPlatformMBeanServer();
+      server.getAttributes(jmx.getObjectName(), new String[]{
+          "SubmittedCount", "CompletedCount", "QueueSize", "WaitP99Nanos", "RunMaxNanos"
+      });
+    } finally {
+      jmx.unregister();
+      ThreadPool.terminateAndWait(executor, Duration.ofSeconds(5));
+    }
+
+    // assert
+    assertEquals(1, snapshots.get());
+  }
+
+  static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread()
+          .interrupt();
+    }
+  }
+}
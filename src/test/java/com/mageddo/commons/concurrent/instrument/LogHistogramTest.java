@@ -0,0 +1,50 @@
+package com.mageddo.commons.concurrent.instrument;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogHistogramTest {
+
+  @Test
+  void mustMapEveryValueToTheBucketHoldingIt() {
+    // arrange
+    final long[] values = {0, 1, 7, 8, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE};
+
+    // act, assert
+    for (final long value : values) {
+      final int bucket = LogHistogram.bucketOf(value);
+      assertTrue(bucket < LogHistogram.BUCKETS);
+      assertTrue(LogHistogram.upperBoundOf(bucket) >= value);
+      assertTrue(bucket == 0 || LogHistogram.upperBoundOf(bucket - 1) < value);
+    }
+  }
+
+  @Test
+  void mustTellPercentilesWithinTheBucketPrecision() {
+    // arrange
+    final var histogram = new LogHistogram();
+
+    // act
+    for (int i = 1; i <= 10_000; i++) {
+      histogram.record(i * 1000L);
+    }
+    final var snapshot = histogram.snapshot();
+
+    // assert
+    assertEquals(10_000, snapshot.getCount());
+    assertEquals(10_000_000, snapshot.getMax());
+    assertEquals(5_000_500.0, snapshot.getMean(), 0.1);
+    assertWithin(5_000_000, snapshot.getValueAtPercentile(50));
+    assertWithin(9_900_000, snapshot.getValueAtPercentile(99));
+    assertEquals(10_000_000, snapshot.getValueAtPercentile(100));
+  }
+
+  static void assertWithin(long expected, long actual) {
+    assertTrue(
+        actual >= expected && actual <= expected * 1.125,
+        () -> String.format("expected=%d, actual=%d", expected, actual)
+    );
+  }
+}